@@ -0,0 +1,95 @@
+package SerialDriver;
+
+import libraries.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// traffic of one port; latency is the time from writing a command to its '\r'
+public class BusMetrics {
+
+    private final String port;
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder replies = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder nakReplies = new LongAdder();
+    private final LongAdder checksumFailures = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public BusMetrics(String port) {
+        this.port = port;
+    }
+
+    public String getPort() {
+        return port;
+    }
+
+    void sent(int bytes) {
+        bytesOut.add(bytes);
+    }
+
+    void received(int bytes) {
+        bytesIn.add(bytes);
+    }
+
+    void reply(long latencyNanos, boolean nak) {
+        replies.increment();
+        latency.record(latencyNanos);
+        if (nak) nakReplies.increment();
+    }
+
+    void timeout() {
+        timeouts.increment();
+    }
+
+    // the driver does not know the frame layout, the caller that checks the CRC reports failures
+    public void checksumFailure() {
+        checksumFailures.increment();
+    }
+
+    public void reset() {
+        bytesOut.reset();
+        bytesIn.reset();
+        replies.reset();
+        timeouts.reset();
+        nakReplies.reset();
+        checksumFailures.reset();
+        latency.reset();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getReplies() {
+        return replies.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getNakReplies() {
+        return nakReplies.sum();
+    }
+
+    public long getChecksumFailures() {
+        return checksumFailures.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: out %d B, in %d B, replies %d, timeouts %d, NAK %d, CRC %d, %s",
+                port, getBytesOut(), getBytesIn(), getReplies(), getTimeouts(), getNakReplies(),
+                getChecksumFailures(), latency);
+    }
+
+}
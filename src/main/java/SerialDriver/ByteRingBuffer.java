@@ -0,0 +1,73 @@
+package SerialDriver;
+
+public class ByteRingBuffer {
+
+    private final byte[] buffer;
+    private int head = 0;
+    private int size = 0;
+
+    public ByteRingBuffer(int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // when full, the oldest bytes are overwritten
+    public void write(byte[] src, int offset, int length) {
+        if (length >= buffer.length) {
+            System.arraycopy(src, offset + length - buffer.length, buffer, 0, buffer.length);
+            head = 0;
+            size = buffer.length;
+            return;
+        }
+        int overflow = size + length - buffer.length;
+        if (overflow > 0) skip(overflow);
+        int tail = (head + size) % buffer.length;
+        int first = Math.min(length, buffer.length - tail);
+        System.arraycopy(src, offset, buffer, tail, first);
+        System.arraycopy(src, offset + first, buffer, 0, length - first);
+        size += length;
+    }
+
+    public int indexOf(byte value) {
+        return indexOf(value, 0);
+    }
+
+    public int indexOf(byte value, int from) {
+        for (int i = from; i < size; i++) {
+            if (buffer[(head + i) % buffer.length] == value) return i;
+        }
+        return -1;
+    }
+
+    public byte get(int index) {
+        return buffer[(head + index) % buffer.length];
+    }
+
+    public int read(byte[] dst, int offset, int length) {
+        length = Math.min(length, size);
+        int first = Math.min(length, buffer.length - head);
+        System.arraycopy(buffer, head, dst, offset, first);
+        System.arraycopy(buffer, 0, dst, offset + first, length - first);
+        skip(length);
+        return length;
+    }
+
+    public void skip(int length) {
+        length = Math.min(length, size);
+        head = (head + length) % buffer.length;
+        size -= length;
+    }
+
+}
@@ -0,0 +1,5 @@
+package SerialDriver;
+
+public interface IDataReceiveAction {
+    void dataReceiveAction(byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,75 @@
+package SerialDriver;
+
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import jssc.SerialPortException;
+
+public class JsscTransport implements Transport, SerialPortEventListener {
+
+    private final String name;
+    private final int rate;
+    private SerialPort serialPort;
+    private IDataReceiveAction receiver;
+
+    public JsscTransport(String name, int rate) {
+        this.name = name;
+        this.rate = rate;
+    }
+
+    @Override
+    public void open(IDataReceiveAction receiver) throws Exception {
+        this.receiver = receiver;
+        serialPort = new SerialPort(name);
+        try {
+            serialPort.openPort();
+            serialPort.setParams(rate,
+                    SerialPort.DATABITS_8,
+                    SerialPort.STOPBITS_1,
+                    SerialPort.PARITY_NONE);
+            serialPort.addEventListener(this);
+        } catch (SerialPortException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(byte[] data) throws Exception {
+        serialPort.writeBytes(data);
+    }
+
+    @Override
+    public void close() {
+        if (serialPort != null) {
+            try {
+                if (serialPort.isOpened()) {
+                    serialPort.closePort();  // close the port
+                }
+            } catch (SerialPortException e) {
+                e.printStackTrace();
+            } finally {
+                serialPort = null;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void serialEvent(SerialPortEvent serialPortEvent) {
+        if (serialPortEvent.isRXCHAR() && serialPortEvent.getEventValue() > 0) {
+            SerialPort port = serialPort;
+            if (port == null) return;
+            try {
+                byte[] data = port.readBytes(serialPortEvent.getEventValue());
+                if (data != null) receiver.dataReceiveAction(data, 0, data.length);
+            } catch (SerialPortException ignored) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,6 @@
+package SerialDriver;
+
+// the far end of a loopback line; it answers through {@code line}, right away or later from any thread
+public interface LoopbackDevice {
+    void received(byte[] data, int offset, int length, IDataReceiveAction line);
+}
@@ -0,0 +1,55 @@
+package SerialDriver;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// in-memory line for tests: written bytes go to the device attached under the same port name,
+// with nothing attached they come straight back like the echo of a two-wire bus
+public class LoopbackTransport implements Transport {
+
+    private static final Map<String, LoopbackDevice> devices = new ConcurrentHashMap<>();
+
+    private final String name;
+    private volatile IDataReceiveAction receiver;
+
+    public LoopbackTransport(String name) {
+        this.name = name;
+    }
+
+    public static void attach(String port, LoopbackDevice device) {
+        devices.put(port, device);
+    }
+
+    public static void detach(String port) {
+        devices.remove(port);
+    }
+
+    @Override
+    public void open(IDataReceiveAction receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void write(byte[] data) throws Exception {
+        IDataReceiveAction line = receiver;
+        if (line == null) throw new IOException("Port closed: " + name);
+        LoopbackDevice device = devices.get(name);
+        if (device == null) {
+            line.dataReceiveAction(data, 0, data.length);
+        } else {
+            device.received(data, 0, data.length, line);
+        }
+    }
+
+    @Override
+    public void close() {
+        receiver = null;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+}
@@ -1,64 +1,184 @@
 package SerialDriver;
 
-import jssc.SerialPort;
-import jssc.SerialPortEvent;
-import jssc.SerialPortEventListener;
-import jssc.SerialPortException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class SerialDriver implements SerialPortEventListener {
+// I-7000 framing over any Transport: one command at a time, the reply ends with '\r'
+public class SerialDriver {
 
-    private static SerialPort serialPort;
+    public static final byte TERMINATOR = '\r';
+    private static final int RING_CAPACITY = 4096;
+    private static final int FRAME_CAPACITY = 256;
+
+    private Transport transport;
+    private BusMetrics metrics;
     private IDataReadAction dataReadAction;
+    private IDataReceiveAction dataReceiveAction;
+    private final ReentrantLock frameLock = new ReentrantLock();
+    private final Condition frameReceived = frameLock.newCondition();
+    private final ByteRingBuffer ring = new ByteRingBuffer(RING_CAPACITY);
+    private final byte[] frame = new byte[FRAME_CAPACITY];
+    private int frameLength = 0;
+    private boolean waitingFrame = false;
+    private boolean frameComplete = false;
+    private volatile long lastReceived = System.nanoTime();
+    // ms of silence owed before the next command, set when a reply was not waited for to the end
+    private int quietGap = 0;
+
+    public SerialDriver(String port, String rate) throws Exception {
+        open(Transports.create(port, rate));
+    }
 
     public SerialDriver(String port, String rate, IDataReadAction dataReadAction) throws Exception {
         this.dataReadAction = dataReadAction;
-        serialPort = new SerialPort(port);
+        open(Transports.create(port, rate));
+    }
+
+    public SerialDriver(String port, String rate, IDataReceiveAction dataReceiveAction) throws Exception {
+        this.dataReceiveAction = dataReceiveAction;
+        open(Transports.create(port, rate));
+    }
+
+    public SerialDriver(Transport transport) throws Exception {
+        open(transport);
+    }
+
+    private void open(Transport transport) throws Exception {
+        metrics = new BusMetrics(transport.getName());
+        this.transport = transport;
         try {
-            serialPort.openPort();
-            serialPort.setParams(Integer.parseInt(rate),
-                    SerialPort.DATABITS_8,
-                    SerialPort.STOPBITS_1,
-                    SerialPort.PARITY_NONE);
-            serialPort.addEventListener(this);
-        } catch (SerialPortException e) {
+            transport.open(this::onReceive);
+        } catch (Exception e) {
             dispose();
             throw e;
         }
     }
 
     public void dispose(){
-        if (serialPort != null) {
-            try {
-                if (serialPort.isOpened()) {
-                    serialPort.closePort();  // close the port
-                }
-            } catch (SerialPortException e) {
-                e.printStackTrace();
-            } finally {
-                serialPort = null;
-            }
-        }
+        Transport current = transport;
+        transport = null;
+        if (current != null) current.close();
+    }
+
+    public BusMetrics getMetrics() {
+        return metrics;
     }
 
     public void write(String text) throws Exception {
+        write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public void write(byte[] frame) throws Exception {
+        Transport current = transport;
+        if (current == null) throw new IOException("Port closed: " + metrics.getPort());
         try {
-            serialPort.writeString(text);
-        } catch (SerialPortException e) {
+            current.write(frame);
+            metrics.sent(frame.length);
+        } catch (Exception e) {
             dispose();
             throw e;
         }
+    }
+
+    /**
+     * Sends a command and blocks until the reply terminated by '\r' arrives.
+     * Returns the reply including the terminator, or null if nothing came in {@code timeout} ms.
+     * An interrupt ends the wait with InterruptedException.
+     */
+    public String query(String command, int timeout) throws Exception {
+        frameLock.lockInterruptibly();
+        try {
+            int length = exchange(command.getBytes(StandardCharsets.US_ASCII), timeout);
+            return length < 0 ? null : new String(frame, 0, length, StandardCharsets.US_ASCII);
+        } finally {
+            frameLock.unlock();
+        }
+    }
 
+    /**
+     * Same as {@link #query(String, int)} but copies the reply into {@code reply}.
+     * Returns the number of bytes copied, or -1 on timeout.
+     */
+    public int query(String command, byte[] reply, int timeout) throws Exception {
+        return query(command.getBytes(StandardCharsets.US_ASCII), reply, timeout);
     }
 
-    @Override
-    public void serialEvent(SerialPortEvent serialPortEvent) {
-        if(serialPortEvent.isRXCHAR() && serialPortEvent.getEventValue() > 0) {
-            try {
-                String data = serialPort.readString(serialPortEvent.getEventValue());
-                dataReadAction.dataReadAction(data);
-            }
-            catch (SerialPortException ignored) {
+    public int query(byte[] command, byte[] reply, int timeout) throws Exception {
+        frameLock.lockInterruptibly();
+        try {
+            int length = exchange(command, timeout);
+            if (length < 0) return -1;
+            length = Math.min(length, reply.length);
+            System.arraycopy(frame, 0, reply, 0, length);
+            return length;
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    /**
+     * A reply carries no command id and #AA not even the address, so a reply that comes after its timeout
+     * would be taken for the answer to the next command. After a timeout the line has to stay quiet for as long
+     * as the expired wait before anything is sent; whatever arrives meanwhile is dropped.
+     */
+    private int exchange(byte[] command, int timeout) throws Exception {
+        if (quietGap > 0) awaitQuiet(TimeUnit.MILLISECONDS.toNanos(quietGap));
+        quietGap = 0;
+        ring.clear();
+        frameLength = 0;
+        frameComplete = false;
+        waitingFrame = true;
+        try {
+            long time = System.nanoTime();
+            write(command);
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (!frameComplete) {
+                if (nanos <= 0L) {
+                    metrics.timeout();
+                    quietGap = timeout;
+                    return -1;
+                }
+                nanos = frameReceived.awaitNanos(nanos);
             }
+            metrics.reply(System.nanoTime() - time, frameLength > 0 && frame[0] == '?');
+            return frameLength;
+        } finally {
+            waitingFrame = false;
         }
     }
+
+    private void awaitQuiet(long gap) throws InterruptedException {
+        long quiet;
+        while ((quiet = System.nanoTime() - lastReceived) < gap) {
+            frameReceived.awaitNanos(gap - quiet);
+        }
+    }
+
+    private void receive(byte[] data, int offset, int length) {
+        frameLock.lock();
+        try {
+            if (!waitingFrame || frameComplete) return;
+            ring.write(data, offset, length);
+            int end = ring.indexOf(TERMINATOR, Math.max(0, ring.size() - length));
+            if (end == -1) return;
+            frameLength = ring.read(frame, 0, Math.min(end + 1, FRAME_CAPACITY));
+            ring.clear();
+            frameComplete = true;
+            frameReceived.signal();
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    private void onReceive(byte[] data, int offset, int length) {
+        lastReceived = System.nanoTime();
+        metrics.received(length);
+        if (dataReceiveAction != null) dataReceiveAction.dataReceiveAction(data, offset, length);
+        if (dataReadAction != null) dataReadAction.dataReadAction(new String(data, offset, length, StandardCharsets.US_ASCII));
+        receive(data, offset, length);
+    }
+
 }
@@ -0,0 +1,75 @@
+package SerialDriver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// one thread serves every remote bus: connects, reads and the writes that did not fit in the socket buffer
+final class TcpSelector implements Runnable {
+
+    private static final int BUFFER_CAPACITY = 4096;
+    private static TcpSelector instance;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+    private final byte[] chunk = new byte[BUFFER_CAPACITY];
+
+    private TcpSelector() throws IOException {
+        selector = Selector.open();
+    }
+
+    static synchronized TcpSelector getInstance() throws IOException {
+        if (instance == null) {
+            instance = new TcpSelector();
+            Thread thread = new Thread(instance, "tcp-selector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    // keys are only touched from the selector thread, everybody else queues a task
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                e.printStackTrace();
+                continue;
+            }
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                TcpTransport transport = (TcpTransport) key.attachment();
+                try {
+                    if (key.isValid() && key.isConnectable()) transport.finishConnect(key);
+                    if (key.isValid() && key.isReadable()) transport.read(buffer, chunk);
+                    if (key.isValid() && key.isWritable()) transport.flush(key);
+                } catch (IOException e) {
+                    transport.fail(e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package SerialDriver;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// RS-485 bus behind an Ethernet converter in transparent mode, the socket carries the raw command bytes
+public class TcpTransport implements Transport {
+
+    private static final int CONNECT_TIMEOUT = 3000;
+
+    private final String name;
+    private final String host;
+    private final int port;
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private TcpSelector selector;
+    private SocketChannel channel;
+    private volatile SelectionKey key;
+    private volatile IDataReceiveAction receiver;
+    private volatile IOException failure;
+
+    public TcpTransport(String name, String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Port number missing: " + name);
+        this.name = name;
+        this.host = address.substring(0, colon);
+        this.port = Integer.parseInt(address.substring(colon + 1).replace("/", ""));
+    }
+
+    @Override
+    public void open(IDataReceiveAction receiver) throws Exception {
+        this.receiver = receiver;
+        selector = TcpSelector.getInstance();
+        channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            boolean done = channel.connect(new InetSocketAddress(host, port));
+            selector.execute(() -> register(done));
+            if (!connected.await(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new ConnectException("Connection timed out: " + name);
+            }
+            if (failure != null) throw failure;
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    // a command goes out from the caller's thread, only a socket buffer that is full hands the rest to the selector
+    @Override
+    public void write(byte[] data) throws Exception {
+        if (failure != null) throw failure;
+        if (key == null) throw new IOException("Port closed: " + name);
+        synchronized (pending) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (pending.isEmpty()) channel.write(buffer);
+            if (!buffer.hasRemaining()) return;
+            pending.add(ByteBuffer.wrap(Arrays.copyOfRange(data, buffer.position(), data.length)));
+        }
+        selector.execute(() -> {
+            SelectionKey current = key;
+            if (current != null && current.isValid()) {
+                current.interestOps(current.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        SelectionKey current = key;
+        key = null;
+        receiver = null;
+        if (current != null) current.cancel();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    private void register(boolean done) {
+        try {
+            key = channel.register(selector.selector(), done ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            if (done) connected.countDown();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void finishConnect(SelectionKey key) throws IOException {
+        if (!channel.finishConnect()) return;
+        key.interestOps(SelectionKey.OP_READ);
+        connected.countDown();
+    }
+
+    void read(ByteBuffer buffer, byte[] chunk) throws IOException {
+        buffer.clear();
+        int length = channel.read(buffer);
+        if (length < 0) throw new EOFException("Connection closed by " + name);
+        IDataReceiveAction line = receiver;
+        if (length == 0 || line == null) return;
+        buffer.flip();
+        buffer.get(chunk, 0, length);
+        line.dataReceiveAction(chunk, 0, length);
+    }
+
+    void flush(SelectionKey key) throws IOException {
+        synchronized (pending) {
+            while (!pending.isEmpty()) {
+                ByteBuffer buffer = pending.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) return;
+                pending.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    // the next write reports the failure to the caller, which disposes the driver
+    void fail(IOException e) {
+        failure = e;
+        connected.countDown();
+        SelectionKey current = key;
+        if (current != null) current.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package SerialDriver;
+
+// the byte stream under SerialDriver: a COM port, a TCP link to an Ethernet/RS-485 converter or an in-memory line
+public interface Transport {
+
+    // received bytes are handed to {@code receiver} from the transport's own thread, valid only during the call
+    void open(IDataReceiveAction receiver) throws Exception;
+
+    void write(byte[] data) throws Exception;
+
+    void close();
+
+    String getName();
+
+}
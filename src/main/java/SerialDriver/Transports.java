@@ -0,0 +1,22 @@
+package SerialDriver;
+
+// the port name picks the transport: tcp://host:port, loop://name, anything else is a COM port
+public final class Transports {
+
+    public static final String TCP_SCHEME = "tcp://";
+    public static final String LOOPBACK_SCHEME = "loop://";
+
+    private Transports() {
+    }
+
+    public static Transport create(String port, String rate) {
+        if (port.startsWith(TCP_SCHEME)) return new TcpTransport(port, port.substring(TCP_SCHEME.length()));
+        if (port.startsWith(LOOPBACK_SCHEME)) return new LoopbackTransport(port);
+        return new JsscTransport(port, Integer.parseInt(rate));
+    }
+
+    public static boolean isSerial(String port) {
+        return !port.startsWith(TCP_SCHEME) && !port.startsWith(LOOPBACK_SCHEME);
+    }
+
+}
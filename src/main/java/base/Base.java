@@ -4,6 +4,7 @@ import base.ExportExcel.ExportExcel;
 import base.helpers.BaseHelper;
 import base.helpers.CheckModules;
 import base.helpers.FileUtils;
+import base.helpers.SerialExecutors;
 import base.serial.DiscoveryManager;
 import base.view.EditorConsole;
 import libraries.I7000;
@@ -18,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import static base.BaseInit.*;
 import static base.helpers.BaseHelper.checkName;
@@ -27,6 +29,8 @@ public class Base {
     final List<Editor> editors = Collections.synchronizedList(new ArrayList<Editor>());
     Editor activeEditor;
     private final List<JMenuItem> recentExperimentsMenuItems = new LinkedList<>();
+    // the module check of each editor, cancelled when the editor closes
+    private final Map<Editor, Future<?>> moduleChecks = new HashMap<>();
 
     public Base(String[] args) throws Exception {
         BaseInit.initPlatform();
@@ -111,6 +115,7 @@ public class Base {
             JOptionPane.showMessageDialog(editor, "Щоб вийти, завершіть експеримент", "Експеримент запущено", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
+        cancelModuleCheck(editor);
         editor.getExperimentController().exit();
         if (editors.size() == 1) {
             editor.setVisible(false);
@@ -321,6 +326,7 @@ public class Base {
     public void handleQuit() {
         if (!PreferencesData.getBoolean("runtime.experiment.running", false)) {
             for (Editor editor : editors) {
+                cancelModuleCheck(editor);
                 editor.getExperimentController().exit();
             }
             System.exit(1);
@@ -358,7 +364,13 @@ public class Base {
         }
         if (!(PreferencesData.getBoolean("check.modules", false) || b)) return; // перевірка якщо виставлено прапорець
         editor.setEnabledItem(false);
-        new Thread(() -> new CheckModules(editor)).start();
+        cancelModuleCheck(editor);
+        moduleChecks.put(editor, SerialExecutors.submit(() -> new CheckModules(editor)));
+    }
+
+    private void cancelModuleCheck(Editor editor) {
+        Future<?> check = moduleChecks.remove(editor);
+        if (check != null) check.cancel(true);
     }
 
     public void handleTestModulesConnection(Editor editor) {
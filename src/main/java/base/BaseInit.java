@@ -181,4 +181,8 @@ public class BaseInit {
         PreferencesData.set("serial.port.rate", rate);
     }
 
+    public static void selectAcquisitionMode(int mode) {
+        PreferencesData.setInteger("acquisition.mode", mode);
+    }
+
 }
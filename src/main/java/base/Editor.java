@@ -5,8 +5,11 @@ import base.helpers.CheckModules;
 import base.platforms.Platform;
 import base.processing.Experiment;
 import base.processing.ExperimentController;
+import base.processing.ExperimentFormat;
 import base.processing.Module;
+import base.processing.TimeIndex;
 import base.view.*;
+import base.view.AcquisitionStatus.AcquisitionStatus;
 import base.view.ExperimentSettings.ExperimentSettings;
 import base.view.ModuleSettings.ModuleSettings;
 import base.view.ProgressBar.ProgressBar;
@@ -21,6 +24,8 @@ import java.awt.event.*;
 import java.awt.Component;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.List;
 
@@ -50,14 +55,17 @@ public class Editor extends JFrame implements RunnerListener {
     private static JMenu portMenu;
     private static JMenu rateMenu;
     private static JMenu signalMenu;
+    private static JMenu modeMenu;
     private static JMenu experimentMenu;
     private JMenuItem experimentSettingsItem;
     private JMenuItem settingsItem;
     private JMenuItem exportExcelItem;
+    private JMenuItem convertBinaryItem;
     private JMenuItem testModulesItem;
     private JMenuItem experimentStartItem;
     private JMenuItem modulesInfoItem;
     private JMenuItem sendSerialItem;
+    private JMenuItem acquisitionStatusItem;
 
     final EditorHeader header;
     EditorConsole console;
@@ -70,6 +78,7 @@ public class Editor extends JFrame implements RunnerListener {
     private static final int SHORTCUT_KEY_MASK = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
     public static final String[] signals = {"Синусоїда", "Трапеція", "Трикутник", "Інший"};
     public static final String[] rates = {"1200", "2400", "4800", "9600", "19200", "38400", "57600", "115200"};
+    public static final String[] acquisitionModes = {"Послідовний (#AA)", "Синхронний (#** та $AA4)"};
     private int currentTabIndex;
     private ExperimentSettings experimentSettings;
 
@@ -259,6 +268,9 @@ public class Editor extends JFrame implements RunnerListener {
                 if (!components.contains(portMenu)) {
                     toolsMenu.insert(portMenu, 4);
                 }
+                if (!components.contains(modeMenu)) {
+                    toolsMenu.insert(modeMenu, 5);
+                }
                 toolsMenu.revalidate();
                 validate();
             }
@@ -310,6 +322,11 @@ public class Editor extends JFrame implements RunnerListener {
         populatePortMenu();
         toolsMenu.add(portMenu);
         MenuScroller.setScrollerFor(portMenu);
+        if (modeMenu == null) {
+            modeMenu = new JMenu("Режим вибірки");
+        }
+        populateModeMenu();
+        toolsMenu.add(modeMenu);
         toolsMenu.addSeparator();
         modulesInfoItem = newJMenuItem("Інформація про пристрій", 'I');
         modulesInfoItem.addActionListener(event -> base.handleDeviceInformation());
@@ -320,6 +337,9 @@ public class Editor extends JFrame implements RunnerListener {
         sendSerialItem = new JMenuItem("Надіслати команду");
         sendSerialItem.addActionListener(event -> handleSendSerial());
         toolsMenu.add(sendSerialItem);
+        acquisitionStatusItem = new JMenuItem("Стан опитування");
+        acquisitionStatusItem.addActionListener(event -> handleAcquisitionStatus());
+        toolsMenu.add(acquisitionStatusItem);
         settingsItem = newJMenuItem("Налаштування", 'D');
         settingsItem.addActionListener(event -> handleSettings());
         toolsMenu.add(settingsItem);
@@ -368,6 +388,12 @@ public class Editor extends JFrame implements RunnerListener {
         sendSerialCommand.setVisible(true);
     }
 
+    private void handleAcquisitionStatus() {
+        AcquisitionStatus acquisitionStatus = new AcquisitionStatus(Editor.this);
+        acquisitionStatus.setLocationRelativeTo(Editor.this);
+        acquisitionStatus.setVisible(true);
+    }
+
     private void handleSettings() {
         if (!enableRun) return;
         ModuleSettings moduleSettings = new ModuleSettings(Editor.this);
@@ -430,6 +456,22 @@ public class Editor extends JFrame implements RunnerListener {
         rateMenu.setEnabled(rateMenu.getMenuComponentCount() > 0);
     }
 
+    private void populateModeMenu() {
+        modeMenu.removeAll();
+        int selectedMode = PreferencesData.getInteger("acquisition.mode", 0);
+        JMenuItem label = new JMenuItem("Режим вибірки");
+        label.setEnabled(false);
+        modeMenu.add(label);
+        modeMenu.addSeparator();
+        for (int i = 0; i < acquisitionModes.length; i++) {
+            JCheckBoxMenuItem item = new JCheckBoxMenuItem(acquisitionModes[i]);
+            int finalI = i;
+            item.addActionListener(event -> selectAcquisitionMode(finalI));
+            item.setSelected(i == selectedMode);
+            modeMenu.add(item);
+        }
+    }
+
     private void populatePortMenu() {
         portMenu.removeAll();
         boolean isLabel = true;
@@ -489,6 +531,11 @@ public class Editor extends JFrame implements RunnerListener {
         BaseInit.selectRate(rate);
     }
 
+    private void selectAcquisitionMode(int mode) {
+        selectAction(modeMenu, acquisitionModes[mode]);
+        BaseInit.selectAcquisitionMode(mode);
+    }
+
     public void handleExperimentSettings() {
         if (!enableRun) return;
         toolbar.activateSettings();
@@ -507,12 +554,63 @@ public class Editor extends JFrame implements RunnerListener {
         item.addActionListener(event -> handleStop());
         experimentMenu.add(item);
         experimentMenu.addSeparator();
+        item = new JMenuItem("Показати інтервал...");
+        item.addActionListener(event -> handleShowInterval());
+        experimentMenu.add(item);
+        item = new JMenuItem("Показати весь експеримент");
+        item.addActionListener(event -> handleShowAll());
+        experimentMenu.add(item);
+        experimentMenu.addSeparator();
         item = newJMenuItem("Відкрити папку з експериментом", 'K');
         item.addActionListener(event -> Base.openFolder(experiment.getFolder()));
         experimentMenu.add(item);
         item.setEnabled(Base.openFolderAvailable());
     }
 
+    // minutes from the start of the run, "900-910"; only that part of the file is read
+    private void handleShowInterval() {
+        if (experiment.isExperimentRunning()) {
+            statusError("Експеримент запущено");
+            return;
+        }
+        String result = (String) JOptionPane.showInputDialog(this,
+                "Хвилини від початку експерименту, від-до", "Інтервал", JOptionPane.QUESTION_MESSAGE,
+                null, null, PreferencesData.get("runtime.chart.interval", "0-60"));
+        if (result == null) return;
+        String[] bounds = result.split("-");
+        double from, to;
+        try {
+            from = Double.parseDouble(bounds[0].trim());
+            to = bounds.length > 1 ? Double.parseDouble(bounds[1].trim()) : from + 60;
+        } catch (NumberFormatException e) {
+            statusError("Некоректний інтервал: " + result);
+            return;
+        }
+        if (from < 0 || to <= from) {
+            statusError("Некоректний інтервал: " + result);
+            return;
+        }
+        PreferencesData.set("runtime.chart.interval", result.trim());
+        try {
+            experimentController.loadInterval(Math.round(from * 60000), Math.round(to * 60000));
+            statusNotice("Показано " + result.trim() + " хв");
+        } catch (Exception e) {
+            statusError(e);
+        }
+    }
+
+    private void handleShowAll() {
+        if (experiment.isExperimentRunning()) {
+            statusError("Експеримент запущено");
+            return;
+        }
+        try {
+            experimentController.reload();
+        } catch (Exception e) {
+            statusError(e);
+        }
+    }
+
     public void handleStop() {
         if (!PreferencesData.getBoolean("runtime.experiment.running", false) || !experiment.isExperimentRunning())
             return;
@@ -525,13 +623,7 @@ public class Editor extends JFrame implements RunnerListener {
         toolbar.deactivateRun();
         toolbar.activateStop();
         setLineStatusText("Зупинка експерименту...");
-        Thread thread = new Thread(this::createProgressBar);
-        thread.start();
-        while (thread.getState() != Thread.State.WAITING) {
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException ignored) { }
-        }
+        createProgressBar();
         experiment.stopExperiment();
         setEnabledItem(true);
         Base.getDiscoveryManager().getSerialDiscoverer().pausePolling(false);
@@ -614,6 +706,9 @@ public class Editor extends JFrame implements RunnerListener {
         exportExcelItem = new JMenuItem("Експортувати...");
         exportExcelItem.addActionListener(event -> base.handleExport(Editor.this));
         fileMenu.add(exportExcelItem);
+        convertBinaryItem = new JMenuItem("Перетворити у двійковий формат");
+        convertBinaryItem.addActionListener(event -> handleConvertBinary());
+        fileMenu.add(convertBinaryItem);
         fileMenu.addSeparator();
         item = newJMenuItem("Налаштування", ',');
         item.addActionListener(event -> base.handlePrefs());
@@ -630,11 +725,36 @@ public class Editor extends JFrame implements RunnerListener {
                 } else {
                     exportExcelItem.setEnabled(true);
                 }
+                convertBinaryItem.setEnabled(exportExcelItem.isEnabled() && !experiment.isExperimentRunning() &&
+                        !ExperimentFormat.isBinary(experiment.getFile()));
             }
         });
         return fileMenu;
     }
 
+    // the text file stays beside the converted one as .bak
+    private void handleConvertBinary() {
+        if (experiment.isExperimentRunning()) {
+            statusError("Експеримент запущено");
+            return;
+        }
+        File file = experiment.getFile();
+        File converted = new File(file.getPath() + ".tmp");
+        File backup = new File(file.getPath() + ".bak");
+        int encoding = PreferencesData.getBoolean("experiment.binary.scaled", false) ?
+                ExperimentFormat.SCALED_LONG : ExperimentFormat.FLOAT;
+        try {
+            ExperimentFormat.convert(file, converted, encoding);
+            Files.move(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(converted.toPath(), file.toPath());
+            TimeIndex.delete(file);
+            statusNotice("Експеримент перетворено, текстовий файл збережено як " + backup.getName());
+        } catch (IOException e) {
+            if (converted.exists() && !converted.delete()) converted.deleteOnExit();
+            statusError(e);
+        }
+    }
+
     private void handleSaveAs() {
         handleStop();
         statusNotice("Збереження...");
@@ -741,10 +861,12 @@ public class Editor extends JFrame implements RunnerListener {
         });
     }
 
+    // the dialog is modal, it is shown later on the event thread so the caller never blocks on it
     public void createProgressBar() {
-        progressBar = new ProgressBar(Editor.this);
-        progressBar.setLocationRelativeTo(Editor.this);
-        progressBar.setVisible(true);
+        ProgressBar bar = new ProgressBar(Editor.this);
+        bar.setLocationRelativeTo(Editor.this);
+        progressBar = bar;
+        SwingUtilities.invokeLater(() -> bar.setVisible(true));
     }
 
     public EditorToolbar getToolbar() {
@@ -2,15 +2,17 @@ package base.ExportExcel;
 
 import base.Editor;
 import base.legacy.PApplet;
+import base.processing.ExperimentFormat;
+import base.processing.RowFormat;
+import base.processing.SampleFrame;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static base.Editor.signals;
 import static base.helpers.BaseHelper.toCollection;
@@ -22,6 +24,8 @@ public class ExportExcel {
     private CreationHelper createHelper;
     private Sheet sheet;
     private int col = 0;
+    private List<String> axes = new ArrayList<>();
+    private boolean timestamps = false;
     private static String[] columns = {"Форма сигналу", "Період", "Мінімальне значення", "Максимальне значення", "Тривалість фронту"};
 
 
@@ -33,13 +37,18 @@ public class ExportExcel {
         createHelper = workbook.getCreationHelper();
         sheet = workbook.createSheet(editor.getExperiment().getName());
         try {
-            fileInputStream = new FileInputStream(editor.getExperiment().getFile());
-            loadedData = load(fileInputStream);
+            File file = editor.getExperiment().getFile();
+            if (ExperimentFormat.isBinary(file)) {
+                loadedData = loadBinary(file);
+            } else {
+                fileInputStream = new FileInputStream(file);
+                loadedData = load(fileInputStream);
+            }
         } finally {
             IOUtils.closeQuietly(fileInputStream);
         }
         saveExcel(loadedData);
-        for(int i = 0; i < col + 2; i++) {
+        for(int i = 0; i < getColumns() + 2; i++) {
             sheet.autoSizeColumn(i);
         }
         FileOutputStream fileOut = new FileOutputStream(newFolder);
@@ -50,20 +59,26 @@ public class ExportExcel {
 
     private void saveExcel(ArrayList<String> loadedData) {
         Row headerRow = sheet.createRow(columns.length);
-        for(int i = 0; i < col; i++) {
-            Cell cell = headerRow.createCell(i + 2);
-            if (i == 0) {
-                cell.setCellValue("Сигнал ЦАП");
-                continue;
+        for(int i = 0, c = 0; i < col; i++) {
+            int channels = getAxes(i);
+            for (int k = 0; k < channels; k++) {
+                Cell cell = headerRow.createCell(c++ + 2);
+                if (i == 0) {
+                    cell.setCellValue("Сигнал ЦАП");
+                    continue;
+                }
+                cell.setCellValue(channels == 1 ? "Модуль АЦП " + i : "Модуль АЦП " + i + "." + (k + 1));
             }
-            cell.setCellValue("Модуль АЦП " + i);
         }
         int cl = columns.length, i = 0, j;
         for(String str : loadedData) {
             Row row = sheet.createRow(cl + ++i);
             j = 0;
-            for(String s : toCollection(str)) {
-                Cell cell = row.createCell(++j + 1);
+            // an empty field is a missing sample, its cell stays blank
+            for(String s : str.split(",", -1)) {
+                j++;
+                if (s.trim().isEmpty() || s.equals("NaN")) continue;
+                Cell cell = row.createCell(j + 1);
                 cell.setCellValue(s);
             }
         }
@@ -78,18 +93,64 @@ public class ExportExcel {
             if (line.length() == 0 || line.charAt(0) == '#') continue;
             int equals = line.indexOf('=');
             if (equals == -1) {
+                // the instant of a row has no column in the sheet
+                if (timestamps) line = line.substring(line.indexOf(',') + 1);
                 loadedData.add(line);
             } else {
-                parseKey(equals, line);
+                parseKey(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
             }
         }
         return loadedData;
     }
 
-    private void parseKey(int equals, String line) {
-        String key = line.substring(0, equals).trim();
+    // binary rows become the same text rows a .fim holds, the sheet is filled from them either way
+    private ArrayList<String> loadBinary(File file) throws Exception {
+        ArrayList<String> loadedData = new ArrayList<>();
+        ExperimentFormat.Header header = ExperimentFormat.readHeader(file);
+        for (Map.Entry<String, String> entry : header.getMetadata().entrySet()) {
+            parseKey(entry.getKey(), entry.getValue());
+        }
+        try (ExperimentFormat.BlockReader in = new ExperimentFormat.BlockReader(file, header,
+                ExperimentFormat.headerLength(header))) {
+            List<SampleFrame> block = new ArrayList<>();
+            StringBuilder row = new StringBuilder();
+            while (in.read(block) >= 0) {
+                for (SampleFrame frame : block) {
+                    row.setLength(0);
+                    RowFormat.append(row, frame.getValues());
+                    loadedData.add(row.toString());
+                }
+                block.clear();
+            }
+        }
+        return loadedData;
+    }
+
+    // channels of module i as written in map.of.axes
+    private int getAxes(int i) {
+        if (i >= axes.size()) return 1;
+        try {
+            return Math.max(1, Integer.parseInt(axes.get(i).trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private int getColumns() {
+        int columns = 0;
+        for (int i = 0; i < col; i++) columns += getAxes(i);
+        return columns;
+    }
+
+    private void parseKey(String key, String value) {
+        if (key.equals(RowFormat.TIMESTAMPS)) {
+            timestamps = value.equals(RowFormat.TIMESTAMPS_MS);
+        }
+        if (key.equals("map.of.axes")) {
+            axes = (List<String>) toCollection(value);
+        }
         if (key.equals("title")) {
-            List<String> values = (ArrayList<String>) toCollection(line.substring(equals + 1).trim());
+            List<String> values = (ArrayList<String>) toCollection(value);
             col = Integer.parseInt(values.get(1));
             for(int i = 0; i < columns.length; i++) {
                 if (i == 4 && !values.get(5).equals("1")) continue;
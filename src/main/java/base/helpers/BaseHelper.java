@@ -10,6 +10,8 @@ import org.apache.commons.compress.utils.IOUtils;
 import javax.swing.*;
 import java.awt.*;
 import java.io.*;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 import java.util.*;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -93,6 +95,10 @@ public class BaseHelper {
             editor.statusError("До вказаного порта нічого не підключено");
             return;
         }
+        if (e instanceof ConnectException || e instanceof UnknownHostException) {
+            editor.statusError("Немає з'єднання з мережевим перетворювачем");
+            return;
+        }
         editor.statusError(e);
     }
 
@@ -185,7 +191,10 @@ public class BaseHelper {
             String config = PreferencesData.get(String.format("module.%s.config", i));
             String type = PreferencesData.get(String.format("module.%s.type", i));
             boolean isActive = PreferencesData.getBoolean(String.format("module.%s.active", i), true);
-            activeEditor.getExperiment().setModule(new Module(i, id, type, config, isActive));
+            Module module = new Module(i, id, type, config, isActive);
+            module.setPort(PreferencesData.get(String.format("module.%s.port", i)));
+            module.setChannelRates(PreferencesData.get(String.format("module.%s.channel.dividers", i)));
+            activeEditor.getExperiment().setModule(module);
         }
         PreferencesData.setBoolean("runtime.valid.modules", true);
     }
@@ -6,14 +6,17 @@ import base.PreferencesData;
 import base.processing.Module;
 import libraries.I7000;
 
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static base.helpers.BaseHelper.parsePortException;
 
 public class CheckModules {
     private final Editor editor;
     private SerialDriver serialDriver;
-    private StringBuffer serialBuffer;
 
     public CheckModules(Editor editor) {
         this.editor = editor;
@@ -25,34 +28,51 @@ public class CheckModules {
             return;
         }
         editor.statusNotice("Перевірка модулів FP100...");
-        editor.statusNotice("Порт: " + port + " | Швидкість: " + rate);
-        serialBuffer = new StringBuffer();
-        try {
-            serialDriver = new SerialDriver(port, rate, this::dataReadAction);
-        } catch (Exception e) {
-            parsePortException(editor, e);
-            editor.setEnabledItem(true);
-            return;
+        Map<String, List<Module>> buses = new LinkedHashMap<>();
+        for (Module module : editor.getExperiment().getModules()) {
+            buses.computeIfAbsent(module.getPort() == null ? port : module.getPort(), k -> new ArrayList<>()).add(module);
         }
-        List<Module> modules = editor.getExperiment().getModules();
         int responseTimeout = PreferencesData.getInteger("response.timeout", 200);
-        for (Module module : modules) {
-            module.setReady(SearchDevices(module.getModuleId(), responseTimeout));
+        for (Map.Entry<String, List<Module>> bus : buses.entrySet()) {
+            if (Thread.currentThread().isInterrupted()) break;
+            editor.statusNotice("Порт: " + bus.getKey() + " | Швидкість: " + rate);
+            try {
+                serialDriver = new SerialDriver(bus.getKey(), rate);
+            } catch (InterruptedException | ClosedByInterruptException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                parsePortException(editor, e);
+                for (Module module : bus.getValue()) {
+                    module.setReady(false);
+                }
+                continue;
+            }
+            for (Module module : bus.getValue()) {
+                if (Thread.currentThread().isInterrupted()) break;
+                module.setReady(SearchDevices(module.getModuleId(), responseTimeout));
+            }
+            serialDriver.dispose();
+        }
+        // a cancelled check leaves the rest of the modules as they were
+        if (Thread.currentThread().isInterrupted()) {
+            editor.statusNotice("Перевірку модулів скасовано");
         }
-        serialDriver.dispose();
         editor.setEnabledItem(true);
     }
 
     private boolean SearchDevices(String module, int responseTimeout) {
-        serialBuffer.setLength(0);
         try {
-            serialDriver.write(I7000.getModuleName(module));
-            Thread.sleep(responseTimeout);
-            if (serialBuffer.indexOf("\r") == -1) {
+            String reply = serialDriver.query(I7000.getModuleName(module), responseTimeout);
+            if (reply == null) {
                 editor.statusError("Модуль: " + module + " -> Не відповідає");
                 return false;
             }
-            editor.statusNotice("Модуль: " + module + " Назва: " + I7000.removeCRC(3, serialBuffer) + " -> Готовий");
+            editor.statusNotice("Модуль: " + module + " Назва: " + I7000.removeCRC(3, reply) + " -> Готовий");
+        } catch (InterruptedException | ClosedByInterruptException e) {
+            // Base cancels the check when its editor closes, a TCP port closes on the interrupt
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
             editor.statusError(e);
             return false;
@@ -60,8 +80,4 @@ public class CheckModules {
         return true;
     }
 
-    private void dataReadAction(String s) {
-        serialBuffer.append(s);
-    }
-
 }
@@ -8,7 +8,6 @@ import static base.helpers.BaseHelper.parsePortException;
 
 public class SendOne {
 
-    private StringBuffer serialBuffer;
     private String result = null;
 
     public SendOne(Editor editor, String command) {
@@ -19,32 +18,17 @@ public class SendOne {
             return;
         }
         SerialDriver serialDriver;
-        serialBuffer = new StringBuffer();
         try {
-            serialDriver = new SerialDriver(port, rate, this::dataReadAction);
+            serialDriver = new SerialDriver(port, rate);
         } catch (Exception e) {
             parsePortException(editor, e);
             return;
         }
         final int responseTimeout = PreferencesData.getInteger("response.timeout", 200);
-        serialBuffer.setLength(0);
-        long startTime = System.currentTimeMillis();
         try {
-            serialDriver.write(command);
+            this.result = serialDriver.query(command, responseTimeout);
         } catch (Exception e) {
             editor.statusError(e);
-            return;
-        }
-        while ((System.currentTimeMillis() - startTime < responseTimeout)) {
-            if (serialBuffer.indexOf("\r") != -1) {
-                this.result = serialBuffer.toString();
-            }
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-               editor.statusError(e);
-               break;
-            }
         }
         serialDriver.dispose();
     }
@@ -53,8 +37,4 @@ public class SendOne {
         return result;
     }
 
-    private void dataReadAction(String s) {
-        serialBuffer.append(s);
-    }
-
 }
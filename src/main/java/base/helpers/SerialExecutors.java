@@ -0,0 +1,53 @@
+package base.helpers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// serial conversations are blocking calls; on a JVM with virtual threads every conversation gets one,
+// on Java 8 they share a bounded pool of daemon threads
+public final class SerialExecutors {
+
+    private static final int POOL_LIMIT = 32;
+    private static final Method virtualThreadPerTask = findVirtualThreadPerTask();
+    private static final ExecutorService shared = newExecutor(POOL_LIMIT, "serial");
+
+    private SerialExecutors() {
+    }
+
+    public static boolean isVirtual() {
+        return virtualThreadPerTask != null;
+    }
+
+    public static Future<?> submit(Runnable task) {
+        return shared.submit(task);
+    }
+
+    // executor for the workers of one run, shut down by the caller
+    public static ExecutorService newExecutor(int threads, String name) {
+        if (virtualThreadPerTask != null) {
+            try {
+                return (ExecutorService) virtualThreadPerTask.invoke(null);
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+        AtomicInteger number = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Method findVirtualThreadPerTask() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
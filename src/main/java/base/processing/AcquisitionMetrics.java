@@ -0,0 +1,168 @@
+package base.processing;
+
+import SerialDriver.BusMetrics;
+import libraries.LatencyHistogram;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+// figures of the current run, shown by the status dialog and published over JMX as StartFP100:type=Acquisition
+public class AcquisitionMetrics implements AcquisitionMetricsMBean {
+
+    private static final AcquisitionMetrics instance = new AcquisitionMetrics();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName("StartFP100:type=Acquisition"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private final LatencyHistogram cycleLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> modules = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile List<BusMetrics> buses = Collections.emptyList();
+    private volatile CycleScheduler cycles;
+    private volatile AcquisitionPipeline pipeline;
+    private volatile int responseTimeout;
+
+    public static AcquisitionMetrics getInstance() {
+        return instance;
+    }
+
+    public void start(List<BusMetrics> buses, CycleScheduler cycles, AcquisitionPipeline pipeline, int responseTimeout) {
+        cycleLatency.reset();
+        modules.clear();
+        this.buses = new ArrayList<>(buses);
+        this.cycles = cycles;
+        this.pipeline = pipeline;
+        this.responseTimeout = responseTimeout;
+    }
+
+    // command to reply time of one module, kept for the whole run
+    public LatencyHistogram module(String moduleId) {
+        return modules.computeIfAbsent(moduleId, id -> new LatencyHistogram());
+    }
+
+    // time the buses were busy in one cycle, to compare against response.timeout
+    public void recordCycle(long nanos) {
+        cycleLatency.record(nanos);
+    }
+
+    @Override
+    public long getCycles() {
+        return cycleLatency.getCount();
+    }
+
+    @Override
+    public long getLateCycles() {
+        return cycles == null ? 0 : cycles.getLate();
+    }
+
+    @Override
+    public long getMissedCycles() {
+        return cycles == null ? 0 : cycles.getMissed();
+    }
+
+    @Override
+    public long getLostRows() {
+        return pipeline == null ? 0 : pipeline.getOverruns();
+    }
+
+    @Override
+    public long getDroppedBatches() {
+        return pipeline == null ? 0 : pipeline.getDroppedBatches();
+    }
+
+    @Override
+    public int getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    @Override
+    public double getCycleMeanMillis() {
+        return cycleLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getCycleP99Millis() {
+        return cycleLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getCycleMaxMillis() {
+        return cycleLatency.getMaxMillis();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return sum(BusMetrics::getBytesOut);
+    }
+
+    @Override
+    public long getBytesIn() {
+        return sum(BusMetrics::getBytesIn);
+    }
+
+    @Override
+    public long getTimeouts() {
+        return sum(BusMetrics::getTimeouts);
+    }
+
+    @Override
+    public long getNakReplies() {
+        return sum(BusMetrics::getNakReplies);
+    }
+
+    @Override
+    public long getChecksumFailures() {
+        return sum(BusMetrics::getChecksumFailures);
+    }
+
+    @Override
+    public String[] getBuses() {
+        return buses.stream().map(BusMetrics::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getModules() {
+        synchronized (modules) {
+            return modules.entrySet().stream().map(e -> e.getKey() + ": " + e.getValue()).toArray(String[]::new);
+        }
+    }
+
+    // late and missed cycles belong to the scheduler, lost rows and batches to the pipeline, they keep counting
+    @Override
+    public void reset() {
+        cycleLatency.reset();
+        synchronized (modules) {
+            modules.values().forEach(LatencyHistogram::reset);
+        }
+        buses.forEach(BusMetrics::reset);
+    }
+
+    public String report() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Циклів: %d, із запізненням: %d, пропущено: %d%n",
+                getCycles(), getLateCycles(), getMissedCycles()));
+        text.append(String.format("Втрачено рядків: %d, пропущено оновлень графіків: %d%n",
+                getLostRows(), getDroppedBatches()));
+        text.append(String.format("Тривалість циклу (таймаут %d мс): %s%n", responseTimeout, cycleLatency));
+        text.append(String.format("Таймаутів: %d, відповідей '?': %d, помилок CRC: %d%n",
+                getTimeouts(), getNakReplies(), getChecksumFailures()));
+        text.append(String.format("%nПорти%n"));
+        for (String bus : getBuses()) text.append(bus).append(System.lineSeparator());
+        text.append(String.format("%nМодулі%n"));
+        for (String module : getModules()) text.append(module).append(System.lineSeparator());
+        return text.toString();
+    }
+
+    private long sum(ToLongFunction<BusMetrics> counter) {
+        long total = 0;
+        for (BusMetrics bus : buses) total += counter.applyAsLong(bus);
+        return total;
+    }
+
+}
@@ -0,0 +1,39 @@
+package base.processing;
+
+public interface AcquisitionMetricsMBean {
+
+    long getCycles();
+
+    long getLateCycles();
+
+    long getMissedCycles();
+
+    long getLostRows();
+
+    long getDroppedBatches();
+
+    int getResponseTimeout();
+
+    double getCycleMeanMillis();
+
+    double getCycleP99Millis();
+
+    double getCycleMaxMillis();
+
+    long getBytesOut();
+
+    long getBytesIn();
+
+    long getTimeouts();
+
+    long getNakReplies();
+
+    long getChecksumFailures();
+
+    String[] getBuses();
+
+    String[] getModules();
+
+    void reset();
+
+}
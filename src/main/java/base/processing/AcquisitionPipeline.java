@@ -0,0 +1,164 @@
+package base.processing;
+
+import base.Editor;
+import base.PreferencesData;
+import org.apache.commons.compress.utils.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// acquire -> [sample ring] -> persist -> [chart batches] -> publish
+public class AcquisitionPipeline {
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int BATCHES_CAPACITY = 16;
+    private static final int POOL_LIMIT = 1 << 14;
+    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(3, runnable -> {
+        Thread thread = new Thread(runnable, AcquisitionPipeline.class.getName());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Editor editor;
+    private final Experiment experiment;
+    private volatile SampleRing ring;
+    private SampleFramePool pool;
+    private final BlockingQueue<List<SampleFrame>> batches = new ArrayBlockingQueue<>(BATCHES_CAPACITY);
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final Object persistLock = new Object();
+    private final Object publishLock = new Object();
+    private ScheduledFuture<?> persistTask;
+    private ExperimentWriter writer;
+    // set under persistLock by the final drain or a failing writer, no tick opens the file after it
+    private boolean closed;
+
+    public AcquisitionPipeline(Editor editor, Experiment experiment) {
+        this.editor = editor;
+        this.experiment = experiment;
+    }
+
+    public static ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public void start(int columns, int flushPeriod) {
+        ring = new SampleRing(RING_CAPACITY, columns);
+        pool = new SampleFramePool(columns, POOL_LIMIT);
+        batches.clear();
+        droppedBatches.set(0);
+        synchronized (persistLock) {
+            closed = false;
+        }
+        persistTask = scheduler.scheduleWithFixedDelay(this::persist, flushPeriod, flushPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    // acquisition thread: fill the claimed frame, then commit it; null means the ring is full
+    public SampleFrame claim() {
+        return ring.claim();
+    }
+
+    public void commit(long timestamp) {
+        ring.publish(timestamp);
+    }
+
+    public void finish(Runnable onFinished) {
+        // a tick already running may still be waiting for persistLock, it finds the pipeline closed
+        if (persistTask != null) persistTask.cancel(false);
+        // the queue is drained first so the last batch can never be dropped
+        scheduler.execute(() -> {
+            publish();
+            synchronized (persistLock) {
+                persist();
+                closed = true;
+                closeWriter();
+            }
+            publish();
+            if (ring.getOverruns() > 0) editor.statusError("Втрачено рядків: " + ring.getOverruns());
+            if (droppedBatches.get() > 0) editor.statusError("Пропущено оновлень графіків: " + droppedBatches.get());
+            onFinished.run();
+        });
+    }
+
+    private void persist() {
+        List<SampleFrame> batch = new ArrayList<>();
+        synchronized (persistLock) {
+            if (closed) return;
+            try {
+                ExperimentWriter out = openWriter();
+                ring.drain(frame -> {
+                    out.append(frame);
+                    SampleFrame copy = pool.acquire();
+                    copy.copyFrom(frame);
+                    batch.add(copy);
+                });
+                // a quiet tick still syncs what the last ones left behind
+                out.commit();
+            } catch (Exception e) {
+                // the stop takes a while, the ticks until then must not reopen the file and stop again
+                closed = true;
+                IOUtils.closeQuietly(writer);
+                writer = null;
+                editor.statusError(e);
+                editor.handleStopAll();
+            }
+        }
+        // charts are only a view of the file, a slow repaint may skip a batch; the count is reported at the end
+        if (batch.isEmpty()) return;
+        if (!batches.offer(batch)) {
+            droppedBatches.incrementAndGet();
+            pool.release(batch);
+            return;
+        }
+        scheduler.execute(this::publish);
+    }
+
+    // Save As during a run moves the experiment, the rows follow it to the new file
+    private ExperimentWriter openWriter() throws IOException {
+        if (writer != null && !writer.getFile().equals(experiment.getFile())) closeWriter();
+        if (writer == null) {
+            writer = new ExperimentWriter(experiment.getFile(), PreferencesData.getInteger("experiment.sync.rows", 1000),
+                    PreferencesData.getInteger("experiment.sync.period", 5000),
+                    PreferencesData.getInteger("experiment.index.rows", 1000));
+        }
+        return writer;
+    }
+
+    private void closeWriter() {
+        synchronized (persistLock) {
+            if (writer == null) return;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                editor.statusError(e);
+            } finally {
+                writer = null;
+            }
+        }
+    }
+
+    private void publish() {
+        synchronized (publishLock) {
+            List<SampleFrame> batch;
+            try {
+                while ((batch = batches.poll()) != null) {
+                    editor.getExperimentController().addDataOnTabs(batch);
+                    pool.release(batch);
+                }
+            } catch (Exception e) {
+                editor.statusError(e);
+            }
+        }
+    }
+
+    public long getOverruns() {
+        return ring == null ? 0 : ring.getOverruns();
+    }
+
+    public long getDroppedBatches() {
+        return droppedBatches.get();
+    }
+
+}
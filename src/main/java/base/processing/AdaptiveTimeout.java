@@ -0,0 +1,52 @@
+package base.processing;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveTimeout {
+
+    private static final float GAIN = 0.125f;
+    private static final float VARIANCE_GAIN = 0.25f;
+    private static final int VARIANCE_FACTOR = 4;
+
+    private final int minTimeout;
+    private final int maxTimeout;
+    private float smoothed = -1;
+    private float variance = 0;
+    private int timeout;
+
+    public AdaptiveTimeout(int minTimeout, int maxTimeout) {
+        this.maxTimeout = Math.max(1, maxTimeout);
+        this.minTimeout = Math.max(1, Math.min(minTimeout, this.maxTimeout));
+        this.timeout = this.maxTimeout;
+    }
+
+    public int get() {
+        return timeout;
+    }
+
+    // same estimator as TCP retransmission timeout: smoothed latency plus four deviations
+    public void success(long latencyNanos) {
+        float latency = latencyNanos / (float) TimeUnit.MILLISECONDS.toNanos(1);
+        if (smoothed < 0) {
+            smoothed = latency;
+            variance = latency / 2;
+        } else {
+            variance += VARIANCE_GAIN * (Math.abs(smoothed - latency) - variance);
+            smoothed += GAIN * (latency - smoothed);
+        }
+        timeout = clamp((int) Math.ceil(smoothed + VARIANCE_FACTOR * variance) + 1);
+    }
+
+    public void timeout() {
+        timeout = clamp(timeout * 2);
+    }
+
+    public float getSmoothed() {
+        return smoothed;
+    }
+
+    private int clamp(int value) {
+        return Math.max(minTimeout, Math.min(maxTimeout, value));
+    }
+
+}
@@ -0,0 +1,58 @@
+package base.processing;
+
+import SerialDriver.SerialDriver;
+
+public class BusPoller {
+
+    // start bit + 8 data bits + stop bit
+    private static final int BITS_PER_BYTE = 10;
+    // the module's answer delay and the line turnaround, counted as bytes on the wire
+    static final int TURNAROUND_LENGTH = 10;
+
+    private final SerialDriver serialDriver;
+    private final int baudRate;
+    private final int maxTimeout;
+    private final boolean adaptive;
+    private final AdaptiveTimeout[] timeouts;
+
+    public BusPoller(SerialDriver serialDriver, int baudRate, int slots, int maxTimeout, boolean adaptive) {
+        this.serialDriver = serialDriver;
+        this.baudRate = baudRate;
+        this.maxTimeout = maxTimeout;
+        this.adaptive = adaptive;
+        this.timeouts = new AdaptiveTimeout[slots];
+    }
+
+    public SerialDriver getSerialDriver() {
+        return serialDriver;
+    }
+
+    // {@code replyLength} is the longest reply the command can get, a learnt timeout never drops below its wire time
+    public int query(int slot, byte[] command, int replyLength, byte[] reply) throws Exception {
+        if (!adaptive) return serialDriver.query(command, reply, maxTimeout);
+        AdaptiveTimeout timeout = timeouts[slot];
+        if (timeout == null) {
+            timeout = new AdaptiveTimeout(1, maxTimeout);
+            timeouts[slot] = timeout;
+        }
+        int minimum = Math.min(maxTimeout, wireTime(command.length + replyLength + TURNAROUND_LENGTH));
+        long time = System.nanoTime();
+        int length = serialDriver.query(command, reply, Math.max(minimum, timeout.get()));
+        if (length < 0) {
+            timeout.timeout();
+        } else {
+            timeout.success(System.nanoTime() - time);
+        }
+        return length;
+    }
+
+    public int getTimeout(int slot) {
+        return timeouts[slot] == null ? maxTimeout : timeouts[slot].get();
+    }
+
+    private int wireTime(int bytes) {
+        if (baudRate <= 0) return 1;
+        return (int) Math.ceil(1000.0 * bytes * BITS_PER_BYTE / baudRate);
+    }
+
+}
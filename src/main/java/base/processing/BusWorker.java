@@ -0,0 +1,230 @@
+package base.processing;
+
+import SerialDriver.SerialDriver;
+import base.Editor;
+import base.PreferencesData;
+import libraries.I7000;
+import libraries.I7000Parser;
+import libraries.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class BusWorker implements Callable<Void> {
+
+    private static final int REPLY_CAPACITY = 256;
+    private static final int DAC_SLOT = 0;
+    // "+01.234" in engineering units, the widest of the I-7000 data formats
+    private static final int VALUE_LENGTH = 7;
+    private static final int HEX_VALUE_LENGTH = 4;
+    // "!AA" and a module name like "7017F"
+    private static final int NAME_REPLY_LENGTH = 3 + 6;
+
+    private final String port;
+    private final int rate;
+    private final SerialDriver serialDriver;
+    private final List<Integer> columns = new ArrayList<>();
+    private final List<Integer> channels = new ArrayList<>();
+    private final List<String> moduleIds = new ArrayList<>();
+    private final List<byte[]> commands = new ArrayList<>();
+    private final List<byte[]> probes = new ArrayList<>();
+    private final List<int[]> dividers = new ArrayList<>();
+    private final List<byte[][]> channelCommands = new ArrayList<>();
+    private LatencyHistogram[] latencies;
+    private ModuleRecovery[] recoveries;
+    private final byte[] reply = new byte[REPLY_CAPACITY];
+    private final byte[] synchronizedSampling = I7000.toFrame(I7000.getSynchronizedSampling());
+    private BusPoller poller;
+    private float[] row;
+    private Integer[] err;
+    private boolean synchronizedMode;
+    private int format;
+    private float fullScale;
+    private int[] readReplies;
+    private int channelReply;
+    private byte[] dacCommand = null;
+    private long cycle = 0;
+
+    public BusWorker(String port, String rate) throws Exception {
+        this.port = port;
+        this.rate = Integer.parseInt(rate);
+        this.serialDriver = new SerialDriver(port, rate);
+    }
+
+    public String getPort() {
+        return port;
+    }
+
+    public SerialDriver getSerialDriver() {
+        return serialDriver;
+    }
+
+    // a module fills {@code channels} columns of the row starting at {@code column}; with dividers,
+    // channel c is read every dividers[c] cycles, by its own #AAN when that is cheaper than the full #AA
+    public void addModule(int column, int channels, String moduleId, byte[] command, int[] dividers,
+                          byte[][] channelCommands) {
+        columns.add(column);
+        this.channels.add(channels);
+        moduleIds.add(moduleId);
+        commands.add(command);
+        probes.add(I7000.toFrame(I7000.getModuleName(moduleId)));
+        this.dividers.add(dividers);
+        this.channelCommands.add(channelCommands);
+    }
+
+    public void prepare(Editor editor, Integer[] err, int responseTimeout, boolean synchronizedMode, boolean adaptive) {
+        this.err = err;
+        this.synchronizedMode = synchronizedMode;
+        this.format = PreferencesData.getInteger("signal.type", I7000Parser.ENGINEERING_UNITS);
+        this.fullScale = I7000Parser.fullScale(PreferencesData.getInteger("analog.input.type", 5));
+        int period = Math.max(1, responseTimeout / (commands.size() + 1) - 5);
+        // #AAN replies are much shorter than #AA ones, they learn their timeout in slots of their own
+        poller = new BusPoller(serialDriver, rate, 2 * commands.size() + 1, period, adaptive);
+        readReplies = new int[moduleIds.size()];
+        for (int i = 0; i < readReplies.length; i++) {
+            // $AA4 answers ">AAS(data)", #AA only ">(data)"
+            readReplies[i] = replyLength(synchronizedMode ? 4 : 1, channels.get(i));
+        }
+        channelReply = replyLength(1, 1);
+        latencies = new LatencyHistogram[moduleIds.size()];
+        recoveries = new ModuleRecovery[moduleIds.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = AcquisitionMetrics.getInstance().module(moduleIds.get(i));
+            recoveries[i] = new ModuleRecovery(editor, moduleIds.get(i));
+        }
+    }
+
+    public void setRow(float[] row) {
+        this.row = row;
+    }
+
+    public void setDacCommand(byte[] dacCommand) {
+        this.dacCommand = dacCommand;
+    }
+
+    public void setCycle(long cycle) {
+        this.cycle = cycle;
+    }
+
+    // #** has no reply, every bus gets it from one place before any worker starts polling
+    public void latch() throws Exception {
+        if (!commands.isEmpty()) serialDriver.write(synchronizedSampling);
+    }
+
+    // the set-point of this cycle goes out once, from here or from call()
+    public void writeDac() throws Exception {
+        if (dacCommand == null) return;
+        byte[] command = dacCommand;
+        dacCommand = null;
+        int length = poller.query(DAC_SLOT, command, replyLength(1, 0), reply);
+        if (length <= 0 || reply[0] != '>') {
+            err[0]++;
+        } else {
+            err[0] = 0;
+        }
+    }
+
+    @Override
+    public Void call() throws Exception {
+        writeDac();
+        long now = System.nanoTime();
+        for (int i = 0; i < commands.size(); i++) {
+            int column = columns.get(i);
+            int count = channels.get(i);
+            ModuleRecovery recovery = recoveries[i];
+            if (recovery.isDropped()) {
+                // the slot of a dropped module is free, the probe fits in it
+                Arrays.fill(row, column, column + count, SampleFrame.MISSING);
+                if (recovery.isProbeDue(now)) probe(i, recovery, now);
+                continue;
+            }
+            int[] divider = dividers.get(i);
+            // #AAN has no synchronized form, $AA4 always returns the whole module
+            if (divider == null || synchronizedMode) {
+                readModule(i, column, count, now);
+            } else {
+                readChannels(i, column, count, divider, now);
+            }
+        }
+        return null;
+    }
+
+    private void readModule(int module, int column, int count, long now) throws Exception {
+        long time = System.nanoTime();
+        int length = poller.query(module + 1, commands.get(module), readReplies[module], reply);
+        if (length > 0) latencies[module].record(System.nanoTime() - time);
+        if (decode(length, column, count)) {
+            recoveries[module].success();
+        } else {
+            Arrays.fill(row, column, column + count, SampleFrame.MISSING);
+            recoveries[module].failure(now);
+        }
+    }
+
+    // channels that are not due this cycle stay MISSING, the file and the charts show them as not sampled
+    private void readChannels(int module, int column, int count, int[] divider, long now) throws Exception {
+        int due = 0;
+        for (int c = 0; c < count; c++) {
+            if (cycle % divider[c] == 0) due++;
+        }
+        byte[][] single = channelCommands.get(module);
+        int fullCost = commands.get(module).length + readReplies[module] + BusPoller.TURNAROUND_LENGTH;
+        int singleCost = single[0].length + channelReply + BusPoller.TURNAROUND_LENGTH;
+        if (due * singleCost >= fullCost) {
+            readModule(module, column, count, now);
+            return;
+        }
+        Arrays.fill(row, column, column + count, SampleFrame.MISSING);
+        // one outcome per module and cycle, as after #AA: a noisy cycle counts once, a channel that never answers still adds up
+        boolean answered = true;
+        for (int c = 0; c < count; c++) {
+            if (cycle % divider[c] != 0) continue;
+            long time = System.nanoTime();
+            int length = poller.query(commands.size() + 1 + module, single[c], channelReply, reply);
+            if (length > 0) latencies[module].record(System.nanoTime() - time);
+            if (!decode(length, column + c, 1)) {
+                row[column + c] = SampleFrame.MISSING;
+                answered = false;
+            }
+        }
+        if (answered) {
+            recoveries[module].success();
+        } else {
+            recoveries[module].failure(now);
+        }
+    }
+
+    // $AA4 replies ">AAS(data)": S = 1 means the value was latched by the last #**
+    private boolean decode(int length, int column, int count) {
+        if (length <= 0 || reply[0] != '>' || (synchronizedMode && (length < 5 || reply[3] != '1'))) {
+            return false;
+        }
+        int decoded = I7000Parser.parseChannels(reply, length, synchronizedMode ? 4 : 1, format, fullScale,
+                I7000.useCRC, row, column, count);
+        if (decoded == I7000Parser.BAD_CHECKSUM) serialDriver.getMetrics().checksumFailure();
+        return decoded == count;
+    }
+
+    // $AAM replies "!AA(name)"
+    private void probe(int module, ModuleRecovery recovery, long now) throws Exception {
+        int length = poller.query(module + 1, probes.get(module), replyLength(NAME_REPLY_LENGTH, 0), reply);
+        if (length > 0 && reply[0] == '!') {
+            recovery.restored();
+        } else {
+            recovery.probeFailed(now);
+        }
+    }
+
+    // prefix, the values, the checksum when it is on and '\r'
+    private int replyLength(int prefix, int values) {
+        int value = format == I7000Parser.HEXADECIMAL ? HEX_VALUE_LENGTH : VALUE_LENGTH;
+        return prefix + values * value + (I7000.useCRC ? 2 : 0) + 1;
+    }
+
+    public void dispose() {
+        serialDriver.dispose();
+    }
+
+}
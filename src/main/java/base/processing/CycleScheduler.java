@@ -0,0 +1,75 @@
+package base.processing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// fixed-rate cycles on absolute deadlines: cycle n starts at origin + n * period, an overrun never shifts later cycles
+public class CycleScheduler {
+
+    private final long periodNanos;
+    private long originNanos;
+    private long originMillis;
+    private volatile long cycle;
+    private long startNanos;
+    private volatile long late;
+    private volatile long missed;
+
+    public CycleScheduler(int periodMillis) {
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, periodMillis));
+    }
+
+    public void start() {
+        originNanos = System.nanoTime();
+        originMillis = System.currentTimeMillis();
+        cycle = -1;
+        late = 0;
+        missed = 0;
+    }
+
+    /**
+     * Parks until the deadline of the next cycle and returns its number.
+     * Cycles whose whole slot has already passed are skipped and counted as missed,
+     * so the returned number always matches the wall-clock phase of the run.
+     */
+    public long awaitNext() throws InterruptedException {
+        long next = cycle + 1;
+        long deadline = originNanos + next * periodNanos;
+        long now = System.nanoTime();
+        if (now - deadline >= periodNanos) {
+            long behind = (now - deadline) / periodNanos;
+            missed += behind;
+            next += behind;
+            deadline += behind * periodNanos;
+        }
+        if (now - deadline > 0) {
+            if (next > 0) late++;
+        } else {
+            while ((now = System.nanoTime()) - deadline < 0) {
+                LockSupport.parkNanos(this, deadline - now);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        }
+        cycle = next;
+        startNanos = now;
+        return next;
+    }
+
+    // wall-clock time the current cycle actually started, in ms
+    public long getInstant() {
+        return originMillis + TimeUnit.NANOSECONDS.toMillis(startNanos - originNanos);
+    }
+
+    public long getCycle() {
+        return cycle;
+    }
+
+    // cycles that started after their deadline but still inside their slot
+    public long getLate() {
+        return late;
+    }
+
+    public long getMissed() {
+        return missed;
+    }
+
+}
@@ -4,13 +4,16 @@ package base.processing;
 import base.Editor;
 import base.PreferencesData;
 import base.helpers.FileUtils;
+import base.helpers.SerialExecutors;
 import base.legacy.PApplet;
 import org.apache.commons.compress.utils.IOUtils;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static base.helpers.BaseHelper.copyFile;
 
@@ -129,7 +132,7 @@ public class Experiment {
         PreferencesData.set("last.experiment.path", file.getAbsolutePath());
         PreferencesData.save();
         isRuntimeRunning = true;
-        new Thread(experimentProcessing).start();
+        SerialExecutors.submit(experimentProcessing);
 //        Thread closeHook = new Thread(experimentProcessing::stopAll);
 //        closeHook.setName("ExperimentProcessing closeHook");
 //        Runtime.getRuntime().addShutdownHook(closeHook);
@@ -159,6 +162,11 @@ public class Experiment {
             }
         }
         PreferencesData.setCollection("runtime.map.of.axes", axes);
+        if (PreferencesData.get("experiment.format", "text").equals("binary")) {
+            setBinaryFileHeader(file, title, axes);
+            editor.createTabs(PreferencesData.getInteger("runtime.count.modules", 0));
+            return;
+        }
         PrintWriter writer = null;
         try {
             writer = PApplet.createWriter(file, true);
@@ -167,6 +175,8 @@ public class Experiment {
             writer.println(String.join(",", title));
             writer.print("map.of.axes=");
             writer.println(String.join(",", axes));
+            writer.print(RowFormat.TIMESTAMPS + "=");
+            writer.println(RowFormat.TIMESTAMPS_MS);
         } catch (Exception e) {
             editor.statusError("Не вдалося записати дані експерименту у файл: " + e.getMessage());
         } finally {
@@ -175,6 +185,25 @@ public class Experiment {
         editor.createTabs(PreferencesData.getInteger("runtime.count.modules", 0));
     }
 
+    private void setBinaryFileHeader(File file, List<String> title, List<String> axes) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("title", String.join(",", title));
+        metadata.put("map.of.axes", String.join(",", axes));
+        int columns = 0;
+        for (String channels : axes) columns += Integer.parseInt(channels);
+        int encoding = PreferencesData.getBoolean("experiment.binary.scaled", false) ?
+                ExperimentFormat.SCALED_LONG : ExperimentFormat.FLOAT;
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            ExperimentFormat.writeHeader(out, new ExperimentFormat.Header(metadata, columns, encoding));
+        } catch (Exception e) {
+            editor.statusError("Не вдалося записати дані експерименту у файл: " + e.getMessage());
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
     public float round(double value, int places) {
         if (places < 0) throw new IllegalArgumentException();
         long factor = (long) Math.pow(10, places);
@@ -4,13 +4,11 @@ import base.BaseInit;
 import base.Editor;
 import base.PreferencesData;
 import base.helpers.FileUtils;
-import base.legacy.PApplet;
-import org.apache.commons.compress.utils.IOUtils;
+import base.view.charts.ChartFactory.xy.XYStorage;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -26,6 +24,8 @@ public class ExperimentController {
     private Editor editor;
     private Experiment experiment;
     private boolean isHeader = true;
+    private long firstTimestamp = 0;
+    private long samples = 0;
 
     public ExperimentController(Editor editor, Experiment experiment) throws Exception {
         this.editor = editor;
@@ -42,42 +42,256 @@ public class ExperimentController {
     private void initExperiment() throws Exception {
         if (experiment.isUntitledAndNotSaved()) return;
         isHeader = false;
-        FileInputStream fileInputStream = null;
-        try {
-            fileInputStream = new FileInputStream(experiment.getFile());
-            load(fileInputStream);
-        } finally {
-            IOUtils.closeQuietly(fileInputStream);
+        File file = experiment.getFile();
+        if (file.length() == 0) {
+            fileEmpty();
+            return;
         }
+        if (ExperimentFormat.isBinary(file)) {
+            loadBinary(file);
+            return;
+        }
+        load(file);
     }
 
     public boolean isHeader() {
         return isHeader;
     }
 
-    private void load(FileInputStream fileInputStream) throws Exception {
-        String[] lines = PApplet.loadStrings(fileInputStream);
-        if (lines == null) return;
-        if (lines.length == 0 ) {
+    // the whole file again, after an interval
+    public void reload() throws Exception {
+        samples = 0;
+        firstTimestamp = 0;
+        initExperiment();
+    }
+
+    /**
+     * Only the rows sampled from {@code from} to {@code to} ms after the start of the run. The time index
+     * gives the offset of the nearest entry before them, so reading starts there and stops after the last row;
+     * the index is built first if the file has none. Rows without an instant of their own take one from the index entries.
+     */
+    public void loadInterval(long from, long to) throws Exception {
+        if (experiment.isUntitledAndNotSaved()) return;
+        File file = experiment.getFile();
+        if (file.length() == 0) {
             fileEmpty();
             return;
         }
-        List<String> loadedData = new ArrayList<>();
-        for (String line : lines) {
-            if (line.length() == 0 || line.charAt(0) == '#') continue;
-            int equals = line.indexOf('=');
-            if (equals == -1) {
-                if (!isHeader) {
-                    invalidFileException();
-                    return;
+        isHeader = false;
+        boolean binary = ExperimentFormat.isBinary(file);
+        ExperimentFormat.Header header = null;
+        if (binary) {
+            header = ExperimentFormat.readHeader(file);
+            for (Map.Entry<String, String> entry : header.getMetadata().entrySet()) {
+                parseKey(entry.getKey(), entry.getValue());
+            }
+        } else {
+            ChartLoader loader = new ChartLoader(true);
+            MappedRowReader.read(file, loader);
+            if (loader.invalid) isHeader = false;
+        }
+        if (!isHeader) {
+            invalidFileException();
+            return;
+        }
+        int period = Math.max(1, PreferencesData.getInteger("response.timeout", 200));
+        try (TimeIndex index = TimeIndex.open(file, PreferencesData.getInteger("experiment.index.rows", 1000))) {
+            long first = index.rowOf(from, period);
+            long last = Math.max(first, index.rowOf(to, period));
+            samples = first;
+            firstTimestamp = index.getOrigin(period);
+            ChartBlock block = new ChartBlock();
+            int entry = index.floor(first);
+            if (entry >= 0 && last > first) {
+                if (binary) {
+                    loadBinaryRows(file, header, index, entry, first, last, period, block);
+                } else {
+                    loadRows(file, index, entry, first, last, period, block);
                 }
-                loadedData.add(line);
-            } else {
-                parseKey(equals, line);
             }
+            block.flush();
         }
-        editor.createTabs(PreferencesData.getInteger("runtime.count.modules", 0));
-        addDataOnTabs(loadedData);
+    }
+
+    private void loadRows(File file, TimeIndex index, int entry, long first, long last, int period,
+                          ChartBlock block) throws Exception {
+        long origin = index.getOrigin(period);
+        long[] row = {index.getRow(entry)};
+        MappedRowReader.read(file, index.getOffset(entry), new MappedRowReader.Handler() {
+            @Override
+            public void key(String key, String value) {
+            }
+
+            @Override
+            public boolean row(long timestamp, float[] values, int count, long offset) {
+                if (row[0] >= last) return false;
+                if (row[0] >= first) {
+                    if (timestamp == 0 && origin != 0) timestamp = origin + index.timeOf(row[0], period);
+                    block.add(timestamp, values, count);
+                }
+                row[0]++;
+                return true;
+            }
+        });
+    }
+
+    private void loadBinaryRows(File file, ExperimentFormat.Header header, TimeIndex index, int entry, long first,
+                                long last, int period, ChartBlock block) throws Exception {
+        long origin = index.getOrigin(period);
+        long row = index.getRow(entry);
+        try (ExperimentFormat.BlockReader in = new ExperimentFormat.BlockReader(file, header, index.getOffset(entry))) {
+            List<SampleFrame> frames = new ArrayList<>();
+            while (row < last && in.read(frames) >= 0) {
+                for (SampleFrame frame : frames) {
+                    if (row >= first && row < last) {
+                        long timestamp = frame.getTimestamp();
+                        if (timestamp == 0 && origin != 0) timestamp = origin + index.timeOf(row, period);
+                        block.add(timestamp, frame.getValues(), frame.getValues().length);
+                    }
+                    row++;
+                }
+                frames.clear();
+            }
+        }
+    }
+
+    // the file is never held in memory, rows go from the mapped bytes through one reused block into the charts;
+    // a large file only has its header read here, the rows are parsed on all cores and merged in order
+    private void load(File file) throws Exception {
+        boolean parallel = file.length() >= ParallelRowParser.THRESHOLD;
+        ChartLoader loader = new ChartLoader(parallel);
+        MappedRowReader.read(file, loader);
+        if (loader.invalid) {
+            invalidFileException();
+            return;
+        }
+        ChartBlock block = loader.getBlock();
+        if (parallel && loader.dataOffset >= 0) {
+            float[] row = new float[block.getColumns()];
+            ParallelRowParser.parse(file, loader.dataOffset, loader.timestamps, chunk -> {
+                for (int r = 0; r < chunk.getRows(); r++) {
+                    chunk.getRow(r, row);
+                    block.add(chunk.getTimestamp(r), row, row.length);
+                }
+            });
+        }
+        block.flush();
+    }
+
+    private void loadBinary(File file) throws Exception {
+        ExperimentFormat.Header header = ExperimentFormat.readHeader(file);
+        for (Map.Entry<String, String> entry : header.getMetadata().entrySet()) {
+            parseKey(entry.getKey(), entry.getValue());
+        }
+        if (!isHeader) {
+            invalidFileException();
+            return;
+        }
+        try (ExperimentFormat.BlockReader in = new ExperimentFormat.BlockReader(file, header,
+                ExperimentFormat.headerLength(header))) {
+            ChartBlock block = new ChartBlock();
+            List<SampleFrame> frames = new ArrayList<>();
+            while (in.read(frames) >= 0) {
+                for (SampleFrame frame : frames) {
+                    block.add(frame.getTimestamp(), frame.getValues(), frame.getValues().length);
+                }
+                frames.clear();
+            }
+            block.flush();
+        }
+    }
+
+    private class ChartLoader implements MappedRowReader.Handler {
+
+        private final boolean headerOnly;
+        private ChartBlock block;
+        private boolean invalid = false;
+        private boolean timestamps = false;
+        private long dataOffset = -1;
+
+        ChartLoader(boolean headerOnly) {
+            this.headerOnly = headerOnly;
+        }
+
+        @Override
+        public void key(String key, String value) {
+            if (key.equals(RowFormat.TIMESTAMPS)) timestamps = value.equals(RowFormat.TIMESTAMPS_MS);
+            parseKey(key, value);
+        }
+
+        @Override
+        public boolean row(long timestamp, float[] values, int count, long offset) {
+            if (!isHeader) {
+                invalid = true;
+                return false;
+            }
+            if (headerOnly) {
+                dataOffset = offset;
+                return false;
+            }
+            getBlock().add(timestamp, values, count);
+            return true;
+        }
+
+        // the tabs exist once the header is read, or at the end for a file without rows
+        ChartBlock getBlock() {
+            if (block == null) block = new ChartBlock();
+            return block;
+        }
+
+    }
+
+    // rows split per module and scaled for the charts, the same arrays serve every block of a load
+    private class ChartBlock {
+
+        private static final int BLOCK_ROWS = 4096;
+
+        private final int numberOfModules = PreferencesData.getInteger("runtime.count.modules", 0);
+        private final int responseTimeout = PreferencesData.getInteger("response.timeout", 200);
+        private final int[] axes;
+        private final int[] coefficient;
+        private final long[] timestamps = new long[BLOCK_ROWS];
+        private final long[][][] values;
+        private int rows = 0;
+
+        ChartBlock() {
+            editor.createTabs(numberOfModules);
+            axes = getAxes(Math.max(0, numberOfModules));
+            coefficient = new int[axes.length];
+            values = new long[axes.length][BLOCK_ROWS][];
+            for (int i = 0; i < axes.length; i++) {
+                coefficient[i] = editor.getTabs().get(i).getCoefficient();
+                for (int r = 0; r < BLOCK_ROWS; r++) values[i][r] = new long[axes[i]];
+            }
+        }
+
+        void add(long timestamp, float[] val, int count) {
+            if (axes.length == 0) return;
+            timestamps[rows] = chartTime(timestamp, responseTimeout);
+            for (int i = 0, column = 0; i < axes.length; i++) {
+                long[] channels = values[i][rows];
+                for (int c = 0; c < channels.length; c++, column++) {
+                    channels[c] = getLong(column < count ? val[column] : SampleFrame.MISSING, coefficient[i]);
+                }
+            }
+            if (++rows == BLOCK_ROWS) flush();
+        }
+
+        // every channel of every module, the width of a row as written
+        int getColumns() {
+            int columns = 0;
+            for (int channels : axes) columns += channels;
+            return columns;
+        }
+
+        void flush() {
+            if (rows == 0) return;
+            for (int i = 0; i < axes.length; i++) {
+                editor.getTabs().get(i).setData(timestamps, values[i], rows);
+            }
+            rows = 0;
+        }
+
     }
 
     private void fileEmpty() {
@@ -88,7 +302,7 @@ public class ExperimentController {
         JOptionPane.showMessageDialog(editor, "Некоректна структура файлу", "Помилка відкриття", JOptionPane.ERROR_MESSAGE);
     }
 
-    public synchronized void addDataOnTabs(List<String> buffer) throws Exception {
+    public synchronized void addDataOnTabs(List<SampleFrame> buffer) throws Exception {
         final int numberOfModules = PreferencesData.getInteger("runtime.count.modules", 0);
         final int responseTimeout = PreferencesData.getInteger("response.timeout", 200);
         if (numberOfModules <= 0 || buffer.size() == 0) return;
@@ -96,14 +310,19 @@ public class ExperimentController {
         for (int i = 0; i < numberOfModules; i++) {
             coefficient[i] = editor.getTabs().get(i).getCoefficient();
         }
+        int[] axes = getAxes(numberOfModules);
         long[] timestamps = new long[buffer.size()];
-        long[][][] values = new long[numberOfModules][buffer.size()][1];
+        long[][][] values = new long[numberOfModules][buffer.size()][];
         for (int t = 0; t < buffer.size(); t++) {
-            timestamps[t] = timeStart;
-            timeStart += responseTimeout;
-            long[] val = getLong(buffer.get(t), coefficient);
-            for (int i = 0; i < numberOfModules; i++) {
-                values[i][t][0] = val[i];
+            timestamps[t] = chartTime(buffer.get(t).getTimestamp(), responseTimeout);
+            float[] val = buffer.get(t).getValues();
+            // a row holds the channels of every module one after another
+            for (int i = 0, column = 0; i < numberOfModules; i++) {
+                long[] channels = new long[axes[i]];
+                for (int c = 0; c < channels.length; c++, column++) {
+                    channels[c] = getLong(column < val.length ? val[column] : SampleFrame.MISSING, coefficient[i]);
+                }
+                values[i][t] = channels;
             }
         }
         for (int i = 0; i < numberOfModules; i++) {
@@ -111,9 +330,20 @@ public class ExperimentController {
         }
     }
 
-    private void parseKey(int equals, String line) {
-        String key = line.substring(0, equals).trim();
-        String value = line.substring(equals + 1).trim();
+    // rows carry the instant they were sampled, rows of a file that does not keep it are spaced by response.timeout
+    private long chartTime(long timestamp, int responseTimeout) {
+        long time;
+        if (timestamp > 0) {
+            if (firstTimestamp == 0) firstTimestamp = timestamp - samples * responseTimeout;
+            time = timeStart + timestamp - firstTimestamp;
+        } else {
+            time = timeStart + samples * responseTimeout;
+        }
+        samples++;
+        return time;
+    }
+
+    private void parseKey(String key, String value) {
         if (key.equals("title")) {
             setDefaultPreferences(value);
         }
@@ -144,18 +374,25 @@ public class ExperimentController {
         }
     }
 
-    private long[] getLong(String str, int[] coefficient) {
-        String[] s = str.split(",");
-        long[] l = new long[s.length];
-        for (int i = 0; i < s.length; i++) {
+    // channels per module from map.of.axes, one where the header says nothing
+    private int[] getAxes(int numberOfModules) {
+        int[] axes = new int[numberOfModules];
+        Arrays.fill(axes, 1);
+        int i = 0;
+        for (String value : PreferencesData.getCollection("runtime.map.of.axes")) {
+            if (i == numberOfModules) break;
             try {
-                l[i] = (long) (int) (Double.parseDouble(s[i]) * coefficient[i]);
-            } catch (NumberFormatException e) {
-                l[i] = 0L;
-                editor.statusError(e);
+                axes[i] = Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException ignored) {
             }
+            i++;
         }
-        return l;
+        return axes;
+    }
+
+    private static long getLong(float value, int coefficient) {
+        if (Float.isNaN(value)) return XYStorage.NO_VALUE;
+        return Math.round((double) value * coefficient);
     }
 
     public boolean saveAs() {
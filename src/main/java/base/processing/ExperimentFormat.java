@@ -0,0 +1,303 @@
+package base.processing;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary experiment file: "FIMB", version, value encoding, columns and the key=value header of a text .fim,
+ * then blocks of [rows][flags][rows x timestamp in ms][columns x rows values], the values one column after another.
+ * Blocks converted from text have no timestamps, their flags say so and the timestamps are left out.
+ * A block cut short by a crash at the end of the file is ignored, every block before it is intact, and the writer
+ * cuts it off before it appends. A block header that cannot be right anywhere else makes the file corrupt.
+ */
+public final class ExperimentFormat {
+
+    public static final int FLOAT = 0;
+    // value * SCALE as a long, exactly the five decimals of the text format
+    public static final int SCALED_LONG = 1;
+    public static final long SCALE = 100000L;
+    public static final int BLOCK_ROWS = 4096;
+
+    private static final byte[] MAGIC = {'F', 'I', 'M', 'B'};
+    private static final int VERSION = 1;
+    private static final long MISSING_LONG = Long.MIN_VALUE;
+    private static final int TIMESTAMPS = 1;
+
+    private ExperimentFormat() {
+    }
+
+    public interface BlockVisitor {
+        void block(long offset, int rows, long timestamp) throws IOException;
+    }
+
+    public static class Header {
+
+        private final Map<String, String> metadata;
+        private final int columns;
+        private final int encoding;
+
+        public Header(Map<String, String> metadata, int columns, int encoding) {
+            this.metadata = metadata;
+            this.columns = columns;
+            this.encoding = encoding;
+        }
+
+        // title and map.of.axes, the same values a text .fim keeps in its key=value lines
+        public Map<String, String> getMetadata() {
+            return metadata;
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public int getEncoding() {
+            return encoding;
+        }
+
+    }
+
+    public static boolean isBinary(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            return Arrays.equals(magic, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static void writeHeader(DataOutput out, Header header) throws IOException {
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(header.getEncoding());
+        out.writeInt(header.getColumns());
+        out.writeInt(header.getMetadata().size());
+        for (Map.Entry<String, String> entry : header.getMetadata().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+
+    public static Header readHeader(DataInput in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a binary experiment");
+        int version = in.readUnsignedShort();
+        if (version != VERSION) throw new IOException("Unsupported binary experiment version " + version);
+        int encoding = in.readUnsignedByte();
+        int columns = in.readInt();
+        int entries = in.readInt();
+        Map<String, String> metadata = new LinkedHashMap<>();
+        for (int i = 0; i < entries; i++) {
+            metadata.put(in.readUTF(), in.readUTF());
+        }
+        return new Header(metadata, columns, encoding);
+    }
+
+    public static Header readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readHeader(in);
+        }
+    }
+
+    // bytes before the first block
+    public static int headerLength(Header header) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeHeader(new DataOutputStream(bytes), header);
+        return bytes.size();
+    }
+
+    public static boolean hasTimestamps(int flags) {
+        return (flags & TIMESTAMPS) != 0;
+    }
+
+    // whole length of a block from its row count and flags, lets a reader step over the values
+    public static long blockLength(Header header, int rows, int flags) {
+        int value = header.getEncoding() == SCALED_LONG ? 8 : 4;
+        return 4 + 1 + (hasTimestamps(flags) ? 8L * rows : 0) + (long) value * rows * header.getColumns();
+    }
+
+    // {@code values} holds {@code rows} rows of {@code columns} values one after another, timestamps may be null
+    public static void writeBlock(DataOutput out, int encoding, int columns, long[] timestamps, float[] values,
+                                  int rows) throws IOException {
+        out.writeInt(rows);
+        out.writeByte(timestamps == null ? 0 : TIMESTAMPS);
+        if (timestamps != null) {
+            for (int r = 0; r < rows; r++) {
+                out.writeLong(timestamps[r]);
+            }
+        }
+        for (int c = 0; c < columns; c++) {
+            for (int r = 0, i = c; r < rows; r++, i += columns) {
+                if (encoding == SCALED_LONG) {
+                    out.writeLong(Float.isNaN(values[i]) ? MISSING_LONG : Math.round(values[i] * (double) SCALE));
+                } else {
+                    out.writeFloat(values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the blocks from {@code from} by their lengths, reading only their headers, and returns the offset just
+     * past the last whole one. A block cut short at the end of the file ends the walk; a corrupt one throws.
+     */
+    public static long scanBlocks(File file, Header header, long from, BlockVisitor visitor) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long length = in.length();
+            long position = from;
+            while (position + 5 <= length) {
+                in.seek(position);
+                int rows = in.readInt();
+                int flags = in.readUnsignedByte();
+                checkBlock(rows, flags, position);
+                long block = blockLength(header, rows, flags);
+                if (position + block > length) break;
+                if (visitor != null) visitor.block(position, rows, hasTimestamps(flags) ? in.readLong() : 0);
+                position += block;
+            }
+            return position;
+        }
+    }
+
+    private static void checkBlock(int rows, int flags, long offset) throws IOException {
+        if (rows < 1 || rows > BLOCK_ROWS || (flags & ~TIMESTAMPS) != 0) {
+            throw new IOException("Corrupt experiment block at byte " + offset);
+        }
+    }
+
+    // blocks from a given offset on; it knows how much of the file is left, so nothing is allocated for a bad header
+    public static class BlockReader implements Closeable {
+
+        private final Header header;
+        private final DataInputStream in;
+        private final long length;
+        private long position;
+
+        public BlockReader(File file, Header header, long offset) throws IOException {
+            this.header = header;
+            FileInputStream stream = new FileInputStream(file);
+            try {
+                length = stream.getChannel().size();
+                stream.getChannel().position(offset);
+            } catch (IOException e) {
+                stream.close();
+                throw e;
+            }
+            position = offset;
+            in = new DataInputStream(new BufferedInputStream(stream));
+        }
+
+        /**
+         * Reads the next block into {@code out} as frames. Returns the number of rows,
+         * or -1 at the end of the file or at a last block that was not written completely.
+         */
+        public int read(List<SampleFrame> out) throws IOException {
+            if (length - position < 5) return -1;
+            int rows = in.readInt();
+            int flags = in.readUnsignedByte();
+            checkBlock(rows, flags, position);
+            long block = blockLength(header, rows, flags);
+            if (position + block > length) return -1;
+            int columns = header.getColumns();
+            SampleFrame[] frames = new SampleFrame[rows];
+            for (int r = 0; r < rows; r++) {
+                frames[r] = new SampleFrame(hasTimestamps(flags) ? in.readLong() : 0, new float[columns]);
+            }
+            for (int c = 0; c < columns; c++) {
+                for (int r = 0; r < rows; r++) {
+                    float value;
+                    if (header.getEncoding() == SCALED_LONG) {
+                        long scaled = in.readLong();
+                        value = scaled == MISSING_LONG ? SampleFrame.MISSING : (float) ((double) scaled / SCALE);
+                    } else {
+                        value = in.readFloat();
+                    }
+                    frames[r].getValues()[c] = value;
+                }
+            }
+            out.addAll(Arrays.asList(frames));
+            position += block;
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+    }
+
+    /**
+     * Rewrites a text .fim as a binary one. Rows led by their instant (RowFormat.TIMESTAMPS) keep it in the blocks,
+     * older rows carry none, so neither do their blocks and the charts space them by response.timeout like before.
+     */
+    public static void convert(File text, File binary, int encoding) throws IOException {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        float[] values = null;
+        long[] timestamps = null;
+        int columns = -1;
+        int rows = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(text), "UTF-8"));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binary)))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0 || line.charAt(0) == '#') continue;
+                int equals = line.indexOf('=');
+                if (equals != -1) {
+                    if (columns < 0) metadata.put(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (columns < 0) {
+                    // the blocks keep the instants themselves, the key only means something in a text file
+                    if (RowFormat.TIMESTAMPS_MS.equals(metadata.remove(RowFormat.TIMESTAMPS))) {
+                        timestamps = new long[BLOCK_ROWS];
+                    }
+                    columns = fields.length - (timestamps == null ? 0 : 1);
+                    values = new float[BLOCK_ROWS * columns];
+                    writeHeader(out, new Header(metadata, columns, encoding));
+                }
+                int first = 0;
+                if (timestamps != null) {
+                    timestamps[rows] = parseTimestamp(fields[0]);
+                    first = 1;
+                }
+                for (int c = 0, i = rows * columns; c < columns; c++, i++) {
+                    values[i] = first + c < fields.length ? parseField(fields[first + c]) : SampleFrame.MISSING;
+                }
+                if (++rows == BLOCK_ROWS) {
+                    writeBlock(out, encoding, columns, timestamps, values, rows);
+                    rows = 0;
+                }
+            }
+            if (columns < 0) {
+                writeHeader(out, new Header(metadata, 0, encoding));
+            } else if (rows > 0) {
+                writeBlock(out, encoding, columns, timestamps, values, rows);
+            }
+        }
+    }
+
+    private static long parseTimestamp(String field) {
+        try {
+            return Long.parseLong(field);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static float parseField(String field) {
+        if (field.isEmpty()) return SampleFrame.MISSING;
+        try {
+            return Float.parseFloat(field);
+        } catch (NumberFormatException e) {
+            return SampleFrame.MISSING;
+        }
+    }
+
+}
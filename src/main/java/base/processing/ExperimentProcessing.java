@@ -1,16 +1,13 @@
 package base.processing;
 
-import SerialDriver.SerialDriver;
+import SerialDriver.BusMetrics;
 import base.Editor;
 import base.PreferencesData;
-import base.legacy.PApplet;
-import libraries.I7000;
-import org.apache.commons.compress.utils.IOUtils;
+import base.helpers.SerialExecutors;
+import libraries.I7000CommandCache;
 
-import java.io.PrintWriter;;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.IntStream;
+import java.util.concurrent.*;
 
 import static base.helpers.BaseHelper.parsePortException;
 
@@ -18,24 +15,32 @@ public class ExperimentProcessing implements Runnable {
 
     private final Editor editor;
     private final Experiment experiment;
-    private SerialDriver serialDriver;
-    private StringBuffer serialBuffer;
+    private final List<BusWorker> workers = new ArrayList<>();
+    private BusWorker dacWorker;
+    private ExecutorService busExecutor;
     private volatile boolean stopExperiment;
-    private AtomicBoolean useFirstBuffer = new AtomicBoolean(true);
-    private List<String> bufferOne = Collections.synchronizedList(new ArrayList<>());
-    private List<String> bufferTwo = Collections.synchronizedList(new ArrayList<>());
-    private Timer checkErrorStatusTimer;
-    private Timer getNewDataTimer;
+    private final AcquisitionPipeline pipeline;
+    private final I7000CommandCache commandCache = new I7000CommandCache();
+    private ScheduledFuture<?> checkErrorStatusTask;
     private volatile Integer[] err;
+    private CycleScheduler cycles;
+    private Thread acquisitionThread;
+    // the DAC column plus every channel of every polled module
+    private int columns;
 
     public ExperimentProcessing(Editor editor, Experiment experiment) {
         this.editor = editor;
         this.experiment = experiment;
+        this.pipeline = new AcquisitionPipeline(editor, experiment);
     }
 
+    // the acquisition thread is woken from whatever it waits on, a cycle that is cut short is not written
     public void stop() {
         stopExperiment = true;
-        checkErrorStatusTimer.cancel();
+        if (checkErrorStatusTask != null) checkErrorStatusTask.cancel(false);
+        synchronized (this) {
+            if (acquisitionThread != null) acquisitionThread.interrupt();
+        }
     }
 
     public void stopAll() {
@@ -43,201 +48,194 @@ public class ExperimentProcessing implements Runnable {
     }
 
     public void start() throws Exception {
-        StringBuilder result = new StringBuilder();
         float[] signal = experiment.generateSignal();
-        String[] commands = generateDacCommands(signal);
-        String[] otherCommands = generateOtherCommands();
-        //String synchronizedSampling = I7000.getSynchronizedSampling();
+        byte[][] commands = generateDacCommands(signal);
         int responseTimeout = PreferencesData.getInteger("response.timeout");
-        int period = responseTimeout / (otherCommands.length + 1) - 5;
-        long timeAll, time;
-        boolean flag;
-        int sErr;
+        boolean synchronizedMode = isSynchronizedMode();
+        boolean adaptive = PreferencesData.getBoolean("response.timeout.adaptive", true);
+        SampleFrame scratch = new SampleFrame(columns);
+        cycles = new CycleScheduler(responseTimeout);
+        List<BusMetrics> busMetrics = new ArrayList<>();
+        for (BusWorker worker : workers) {
+            busMetrics.add(worker.getSerialDriver().getMetrics());
+        }
+        AcquisitionMetrics metrics = AcquisitionMetrics.getInstance();
+        metrics.start(busMetrics, cycles, pipeline, responseTimeout);
+        for (BusWorker worker : workers) {
+            worker.prepare(editor, err, responseTimeout, synchronizedMode, adaptive);
+        }
+        SampleFrame frame;
+        long time;
+        cycles.start();
         while (!stopExperiment) {
-            for (int i = 0; i < commands.length; i++) {
-                timeAll = System.currentTimeMillis();
-                serialBuffer.setLength(0);
-                result.setLength(0);
-                time = System.currentTimeMillis();
-                sErr = 0;
-                flag = false;
-                if (!commands[i].equals("null")) {
-                    serialDriver.write(commands[i]);
-                    while ((System.currentTimeMillis() - time < period)) {
-                        if (serialBuffer.indexOf("\r") != -1) {
-                            flag = true;
-                            if (serialBuffer.indexOf(">") == -1) {
-                                err[sErr]++;
-                                break;
-                            }
-                            err[sErr] = 0;
-                            break;
-                        }
-                        Thread.sleep(1);
-                    }
-                    result.append(signal[i]);
-                    if (!flag) err[sErr]++;
-                } else {
-                    result.append(0);
-                }
-                sErr++;
-                if (stopExperiment) return;
-                //serialDriver.write(synchronizedSampling);
-                for (String command : otherCommands) {
-                    result.append(",");
-                    serialBuffer.setLength(0);
-                    serialDriver.write(command);
-                    time = System.currentTimeMillis();
-                    flag = false;
-                    while ((System.currentTimeMillis() - time < period)) {
-                        if (serialBuffer.indexOf("\r") != -1) {
-                            flag = true;
-                            if (serialBuffer.indexOf(">") == -1) {
-                                err[sErr]++;
-                                result.append("0");
-                                break;
-                            }
-                            result.append(I7000.removeCRC(1, serialBuffer));
-                            err[sErr] = 0;
-                            break;
-                        }
-                        Thread.sleep(1);
-                    }
-                    if (!flag) {
-                        err[sErr]++;
-                        result.append("0");
-                    }
-                    sErr++;
-                }
-                if (useFirstBuffer.get()) {
-                    bufferOne.add(String.valueOf(result));
-                } else {
-                    bufferTwo.add(String.valueOf(result));
-                }
-                while ((System.currentTimeMillis() - timeAll < responseTimeout)) {
-                    Thread.sleep(1);
+            // skipped cycles skip their DAC steps too, the output stays in phase with the clock
+            long cycle = cycles.awaitNext();
+            int i = (int) (cycle % commands.length);
+            if (stopExperiment) return;
+            frame = pipeline.claim();
+            if (frame == null) frame = scratch;
+            for (BusWorker worker : workers) {
+                worker.setRow(frame.getValues());
+                worker.setCycle(cycle);
+            }
+            if (dacWorker != null) dacWorker.setDacCommand(commands[i]);
+            time = System.nanoTime();
+            // the DAC step first, then one #** on every port back to back: all inputs share one instant after it
+            if (synchronizedMode) {
+                if (dacWorker != null) dacWorker.writeDac();
+                for (BusWorker worker : workers) {
+                    worker.latch();
                 }
-                if (stopExperiment) return;
             }
+            pollWorkers();
+            metrics.recordCycle(System.nanoTime() - time);
+            frame.getValues()[0] = commands[i] == null ? 0 : signal[i];
+            pipeline.commit(cycles.getInstant());
         }
 
     }
 
-    private String[] generateOtherCommands() {
+    // every bus is polled by its own worker, the row is complete when all of them are done
+    private void pollWorkers() throws Exception {
+        if (busExecutor == null) {
+            for (BusWorker worker : workers) {
+                worker.call();
+            }
+            return;
+        }
+        for (Future<Void> future : busExecutor.invokeAll(workers)) {
+            future.get();
+        }
+    }
+
+    private void openWorkers() throws Exception {
+        String defaultPort = PreferencesData.get("serial.port");
+        String rate = PreferencesData.get("serial.port.rate");
         String dacId = PreferencesData.get("runtime.dac.module", "");
-        List<Module> modules = experiment.getModules();
-        String[] str = new String[PreferencesData.getInteger("runtime.count.modules") - 1];
-        int i = 0;
-        for (Module module : modules) {
-            if (module.getModuleId().equals(dacId)) continue;
-            if (module.isActive() && module.isReady()) {
-                //str[i++] = I7000.setAnalogInTechnicalUnitsSynchronized(module.getModuleId());
-                str[i++] = I7000.setAnalogInTechnicalUnits(module.getModuleId());
+        boolean dacReady = PreferencesData.getBoolean("runtime.dac.module.ready", false);
+        Map<String, BusWorker> buses = new LinkedHashMap<>();
+        int column = 1;
+        try {
+            for (Module module : experiment.getModules()) {
+                String port = module.getPort() == null ? defaultPort : module.getPort();
+                if (module.getModuleId().equals(dacId)) {
+                    if (dacReady) dacWorker = getWorker(buses, port, rate);
+                    continue;
+                }
+                if (module.isActive() && module.isReady()) {
+                    getWorker(buses, port, rate).addModule(column, module.getAxes(), module.getModuleId(),
+                            commandCache.analogIn(module.getModuleId(), isSynchronizedMode()),
+                            module.getChannelDividers(), channelCommands(module));
+                    column += module.getAxes();
+                }
             }
+        } finally {
+            workers.addAll(buses.values());
+            columns = column;
+        }
+        if (workers.size() > 1) busExecutor = SerialExecutors.newExecutor(workers.size(), "bus");
+    }
+
+    private byte[][] channelCommands(Module module) {
+        if (module.getChannelDividers() == null) return null;
+        byte[][] frames = new byte[module.getAxes()][];
+        for (int c = 0; c < frames.length; c++) {
+            frames[c] = commandCache.analogInChannel(module.getModuleId(), c);
+        }
+        return frames;
+    }
+
+    private BusWorker getWorker(Map<String, BusWorker> buses, String port, String rate) throws Exception {
+        BusWorker worker = buses.get(port);
+        if (worker == null) {
+            worker = new BusWorker(port, rate);
+            buses.put(port, worker);
         }
-        return str;
+        return worker;
     }
 
-    private String[] generateDacCommands(float[] signal) {
-        if (!PreferencesData.getBoolean("runtime.dac.module.ready", false)) return new String[]{"null"};
-        String dacId = PreferencesData.get("runtime.dac.module");
-        String[] str = new String[signal.length];
-        for (int i = 0; i < signal.length; i++) {
-            str[i] = I7000.setAnalogOutTechnicalUnits(dacId, signal[i]);
+    private void closeWorkers() {
+        if (busExecutor != null) busExecutor.shutdownNow();
+        busExecutor = null;
+        for (BusWorker worker : workers) {
+            worker.dispose();
         }
-        return str;
+        workers.clear();
+        dacWorker = null;
+    }
+
+    private boolean isSynchronizedMode() {
+        return PreferencesData.getInteger("acquisition.mode", 0) == 1;
+    }
+
+    // one frame per signal step, null when there is no DAC to drive
+    private byte[][] generateDacCommands(float[] signal) {
+        if (!PreferencesData.getBoolean("runtime.dac.module.ready", false)) return new byte[][]{null};
+        return commandCache.analogOut(PreferencesData.get("runtime.dac.module"), signal);
     }
 
     @Override
     public void run() {
-        String port = PreferencesData.get("serial.port");
-        String rate = PreferencesData.get("serial.port.rate");
-        serialBuffer = new StringBuffer();
+        stopExperiment = false;
+        synchronized (this) {
+            acquisitionThread = Thread.currentThread();
+        }
+        try {
+            acquire();
+        } finally {
+            synchronized (this) {
+                acquisitionThread = null;
+                // the thread goes back to a pool, a late stop must not interrupt its next task
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void acquire() {
+        // the CRC setting may have changed since the last run
+        commandCache.clear();
         checkErrorStatus();
         try {
-            serialDriver = new SerialDriver(port, rate, s -> serialBuffer.append(s));
+            openWorkers();
         } catch (Exception e) {
+            closeWorkers();
             parsePortException(editor, e);
             editor.stopExperimentPortException();
             return;
         }
-        stopExperiment = false;
-        bufferOne.clear();
-        bufferTwo.clear();
-        getNewData();
+        int chartTimeUpdate = PreferencesData.getInteger("chart.time.update", 1000);
+        pipeline.start(columns, Math.max(1, chartTimeUpdate));
         try {
             start();
+        } catch (InterruptedException ignored) {
+            // stop() was called
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            closeWorkers();
         }
-        serialDriver.dispose();
-    }
-
-    private void getNewData() {
-        getNewDataTimer = new Timer(ExperimentProcessing.class.getName());
-        int period = PreferencesData.getInteger("response.timeout", 200);
-        int chartTimeUpdate = PreferencesData.getInteger("chart.time.update", 1000);
-        if (chartTimeUpdate < 1 ) chartTimeUpdate = 1;
-        getNewDataTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                toggle();
-                PrintWriter writer = null;
-                try {
-                    writer = PApplet.createWriter(experiment.getFile(), true);
-                    Thread.sleep(2 * period / 3);
-                    if (useFirstBuffer.get()) {
-                        addDataOnTabs(bufferTwo);
-                        for (String str : bufferTwo) writer.println(str);
-                        bufferTwo.clear();
-                    } else {
-                        addDataOnTabs(bufferOne);
-                        for (String str : bufferOne) writer.println(str);
-                        bufferOne.clear();
-                    }
-                } catch (Exception e) {
-                    editor.statusError(e);
-                    stopAll();
-                } finally {
-                    IOUtils.closeQuietly(writer);
-                }
-                if (stopExperiment) {
-                    editor.getProgressBar().closeProgressBar();
-                    editor.getToolbar().deactivateStop();
-                    editor.setLineStatusText("Експеримент зупинено");
-                    getNewDataTimer.cancel();
-                }
+        pipeline.finish(() -> {
+            if (cycles != null && cycles.getMissed() > 0) {
+                editor.statusError(String.format("Пропущено циклів: %d, із запізненням: %d", cycles.getMissed(), cycles.getLate()));
             }
-        }, chartTimeUpdate, chartTimeUpdate);
+            if (editor.getProgressBar() != null) editor.getProgressBar().closeProgressBar();
+            editor.getToolbar().deactivateStop();
+            editor.setLineStatusText("Експеримент зупинено");
+        });
     }
 
     private void checkErrorStatus() {
         err = new Integer[PreferencesData.getInteger("runtime.count.modules")];
         Arrays.fill(err, 0);
         int period = PreferencesData.getInteger("response.timeout", 200) * 3;
-        checkErrorStatusTimer = new Timer(ExperimentProcessing.class.getName());
-        checkErrorStatusTimer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (IntStream.range(0, err.length).filter(i -> err[i] > 2).findFirst().orElse(-1) != -1) {
-                    editor.statusError("Помилка очікування");
-                    editor.statusError("Модуль не відповідає");
-                    stopAll();
-                }
+        // input modules recover on their own, without the DAC the run has no signal
+        checkErrorStatusTask = AcquisitionPipeline.getScheduler().scheduleAtFixedRate(() -> {
+            if (err.length > 0 && err[0] > 2) {
+                editor.statusError("Помилка очікування");
+                editor.statusError("Модуль ЦАП не відповідає");
+                stopAll();
             }
-        }, 0, period);
-    }
-
-    private void addDataOnTabs(List<String> buffer) throws Exception {
-        editor.getExperimentController().addDataOnTabs(buffer);
-        // need fix
-    }
-
-    protected void toggle() {
-        boolean temp;
-        do {
-            temp = useFirstBuffer.get();
-        } while(!useFirstBuffer.compareAndSet(temp, !temp));
+        }, 0, period, TimeUnit.MILLISECONDS);
     }
 
 }
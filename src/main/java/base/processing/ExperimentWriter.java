@@ -0,0 +1,247 @@
+package base.processing;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the experiment file open for the whole run and appends rows in the file's own format: text lines, led by
+ * the instant of the row when the header has RowFormat.TIMESTAMPS, or for a file that starts with a binary header,
+ * one block per commit. Rows reach the operating system on every commit,
+ * the disk (fsync) once {@code syncRows} rows or {@code syncPeriod} ms have gone by since the last sync,
+ * whichever comes first, and always on close. A value of 0 or less turns that trigger off.
+ * Every line or block is also noted in the sidecar TimeIndex; an index that fails is dropped, never the rows.
+ * A line or block a crash left unfinished is cut off before anything is appended, a corrupt binary file is not appended to.
+ */
+public class ExperimentWriter implements Closeable {
+
+    private static final int BUFFER_CAPACITY = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_CAPACITY);
+    private final int syncRows;
+    private final long syncPeriodNanos;
+    private final StringBuilder row = new StringBuilder();
+    private final ExperimentFormat.Header header;
+    private final boolean timestamps;
+    private final DataOutputStream blockOutput;
+    private long[] blockTimestamps;
+    private float[] blockValues;
+    private int blockRows = 0;
+    private int unsyncedRows = 0;
+    private long lastSync = System.nanoTime();
+    private long position;
+    private TimeIndex index;
+
+    // {@code indexRows} rows per entry of the time index, 0 or less writes none
+    public ExperimentWriter(File file, int syncRows, int syncPeriod, int indexRows) throws IOException {
+        this.file = file;
+        this.syncRows = syncRows;
+        this.syncPeriodNanos = TimeUnit.MILLISECONDS.toNanos(syncPeriod);
+        header = file.length() > 0 && ExperimentFormat.isBinary(file) ? ExperimentFormat.readHeader(file) : null;
+        timestamps = header == null && file.length() > 0 && MappedRowReader.hasTimestamps(file);
+        blockOutput = header == null ? null : new DataOutputStream(new BufferOutput());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        try {
+            // the text index would count a cut line as a row, the binary scan stops in front of a cut block
+            if (header == null) {
+                truncate(textEnd(file));
+                openIndex(indexRows);
+            } else {
+                openIndex(indexRows);
+                truncate(index != null ? index.getEnd() : ExperimentFormat.scanBlocks(file, header,
+                        ExperimentFormat.headerLength(header), null));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        position = channel.size();
+    }
+
+    private void openIndex(int indexRows) {
+        if (indexRows <= 0) return;
+        try {
+            index = TimeIndex.open(file, indexRows);
+        } catch (IOException e) {
+            TimeIndex.delete(file);
+        }
+    }
+
+    private void truncate(long end) throws IOException {
+        if (end < channel.size()) channel.truncate(end);
+    }
+
+    // just past the last line break, where a row cut short by a crash begins
+    private static long textEnd(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] chunk = new byte[4096];
+            long end = in.length();
+            while (end > 0) {
+                int length = (int) Math.min(chunk.length, end);
+                in.seek(end - length);
+                in.readFully(chunk, 0, length);
+                for (int i = length - 1; i >= 0; i--) {
+                    if (chunk[i] == '\n') return end - length + i + 1;
+                }
+                end -= length;
+            }
+            return 0;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void append(SampleFrame frame) throws IOException {
+        if (header == null) {
+            row.setLength(0);
+            if (timestamps) {
+                RowFormat.append(row, frame.getTimestamp(), frame.getValues());
+            } else {
+                RowFormat.append(row, frame.getValues());
+            }
+            index(frame.getTimestamp(), 1);
+            appendLine(row);
+        } else {
+            stage(frame);
+        }
+        unsyncedRows++;
+    }
+
+    public void commit() throws IOException {
+        writeBlock();
+        drain();
+        if (index != null) {
+            try {
+                index.flush();
+            } catch (IOException e) {
+                dropIndex();
+            }
+        }
+        if (unsyncedRows == 0) return;
+        boolean rowsDue = syncRows > 0 && unsyncedRows >= syncRows;
+        boolean timeDue = syncPeriodNanos > 0 && System.nanoTime() - lastSync >= syncPeriodNanos;
+        if (rowsDue || timeDue) sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+            drain();
+            if (unsyncedRows > 0) sync();
+        } finally {
+            channel.close();
+            if (index != null) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    TimeIndex.delete(file);
+                }
+            }
+        }
+    }
+
+    // rows are plain ASCII: digits, signs, points and commas
+    private void appendLine(CharSequence line) throws IOException {
+        for (int i = 0; i < line.length(); i++) {
+            if (!buffer.hasRemaining()) drain();
+            buffer.put((byte) line.charAt(i));
+        }
+        if (buffer.remaining() < LINE_SEPARATOR.length) drain();
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    // a row wider or narrower than the header is cut or padded with missing samples
+    private void stage(SampleFrame frame) throws IOException {
+        int columns = header.getColumns();
+        if (blockTimestamps == null) {
+            blockTimestamps = new long[ExperimentFormat.BLOCK_ROWS];
+            blockValues = new float[ExperimentFormat.BLOCK_ROWS * columns];
+        }
+        float[] values = frame.getValues();
+        int offset = blockRows * columns;
+        int length = Math.min(columns, values.length);
+        System.arraycopy(values, 0, blockValues, offset, length);
+        Arrays.fill(blockValues, offset + length, offset + columns, SampleFrame.MISSING);
+        blockTimestamps[blockRows] = frame.getTimestamp();
+        if (++blockRows == ExperimentFormat.BLOCK_ROWS) writeBlock();
+    }
+
+    private void writeBlock() throws IOException {
+        if (blockRows == 0) return;
+        index(blockTimestamps[0], blockRows);
+        ExperimentFormat.writeBlock(blockOutput, header.getEncoding(), header.getColumns(), blockTimestamps,
+                blockValues, blockRows);
+        blockRows = 0;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // the next line or block starts where the file ends plus what is still buffered
+    private void index(long timestamp, int rows) {
+        if (index == null) return;
+        try {
+            index.record(position + buffer.position(), timestamp, rows);
+        } catch (IOException e) {
+            dropIndex();
+        }
+    }
+
+    private void dropIndex() {
+        try {
+            index.close();
+        } catch (IOException ignored) {
+        }
+        index = null;
+        TimeIndex.delete(file);
+    }
+
+    private void sync() throws IOException {
+        channel.force(false);
+        unsyncedRows = 0;
+        lastSync = System.nanoTime();
+    }
+
+    // lets the block encoder write into the same buffer as the text rows
+    private class BufferOutput extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) drain();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) drain();
+                int chunk = Math.min(len, buffer.remaining());
+                buffer.put(b, off, chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+package base.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Walks a text .fim through read-only mappings of at most WINDOW bytes, so a file of any size costs
+ * the same heap. Data rows are parsed straight from the mapped bytes by a RowParser, only header lines become Strings.
+ * The RowFormat.TIMESTAMPS key is looked up in the header even when reading starts further on.
+ */
+public class MappedRowReader {
+
+    private static final long WINDOW = 64L << 20;
+
+    public interface Handler {
+
+        // a key=value header line
+        void key(String key, String value) throws Exception;
+
+        // {@code values} holds the {@code count} fields of the row starting at byte {@code offset}, false stops reading;
+        // {@code timestamp} is the instant the row was sampled, 0 in a file that does not keep it
+        boolean row(long timestamp, float[] values, int count, long offset) throws Exception;
+
+    }
+
+    private final Handler handler;
+    private final RowParser parser = new RowParser();
+    private boolean stopped = false;
+
+    private MappedRowReader(Handler handler) {
+        this.handler = handler;
+    }
+
+    public static void read(File file, Handler handler) throws Exception {
+        read(file, 0, handler);
+    }
+
+    // {@code from} has to be the start of a line, offsets passed to the handler stay those of the file
+    public static void read(File file, long from, Handler handler) throws Exception {
+        MappedRowReader reader = new MappedRowReader(handler);
+        if (from > 0) reader.parser.setTimestamps(hasTimestamps(file));
+        reader.read(file, from);
+    }
+
+    // whether the rows of {@code file} lead with their instant, read from the header lines before the first row
+    public static boolean hasTimestamps(File file) throws IOException {
+        boolean[] timestamps = {false};
+        Handler header = new Handler() {
+            @Override
+            public void key(String key, String value) {
+                if (key.equals(RowFormat.TIMESTAMPS)) timestamps[0] = value.equals(RowFormat.TIMESTAMPS_MS);
+            }
+
+            @Override
+            public boolean row(long timestamp, float[] values, int count, long offset) {
+                return false;
+            }
+        };
+        try {
+            read(file, 0, header);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return timestamps[0];
+    }
+
+    private void read(File file, long from) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = from;
+            while (position < size && !stopped) {
+                int length = (int) Math.min(WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int start = 0;
+                for (int i = 0; i < length && !stopped; i++) {
+                    if (buffer.get(i) != '\n') continue;
+                    line(buffer, start, i, position + start);
+                    start = i + 1;
+                }
+                if (position + length == size) {
+                    if (start < length && !stopped) line(buffer, start, length, position + start);
+                    break;
+                }
+                // the window ends inside a line, the next one starts with it
+                if (start == 0) throw new IOException("Line longer than " + WINDOW + " bytes at " + position);
+                position += start;
+            }
+        }
+    }
+
+    private void line(MappedByteBuffer buffer, int from, int to, long offset) throws Exception {
+        if (!parser.load(buffer, from, to)) return;
+        int equals = parser.equalsIndex();
+        if (equals != -1) {
+            String key = parser.key(equals);
+            String value = parser.value(equals);
+            if (key.equals(RowFormat.TIMESTAMPS)) parser.setTimestamps(value.equals(RowFormat.TIMESTAMPS_MS));
+            handler.key(key, value);
+            return;
+        }
+        int count = parser.parseFields();
+        if (!handler.row(parser.getTimestamp(), parser.getValues(), count, offset)) stopped = true;
+    }
+
+}
@@ -1,12 +1,15 @@
 package base.processing;
 
+import base.PreferencesData;
+
 public class Module {
 
     private String config;
     private String type;
     private int id;
-    private int axes = 1;
     private String moduleId;
+    private String port = null;
+    private int[] channelDividers = null;
     private boolean isActive = true;
     private boolean isReady = false;
 
@@ -25,8 +28,57 @@ public class Module {
         this.config = strings[1];
     }
 
+    // channels returned by one #AA, per type in preferences: module.type.7017F.channels=8
     public int getAxes() {
-        return axes;
+        if (type == null) return 1;
+        return Math.max(1, PreferencesData.getInteger("module.type." + type + ".channels", 1));
+    }
+
+    // channel c is read every getChannelDivider(c) cycles, 1 is every cycle
+    public int getChannelDivider(int channel) {
+        if (channelDividers == null || channel >= channelDividers.length) return 1;
+        return channelDividers[channel];
+    }
+
+    // null when every channel is read every cycle and one #AA per cycle is enough
+    public int[] getChannelDividers() {
+        int axes = getAxes();
+        if (axes < 2 || channelDividers == null) return null;
+        int[] dividers = new int[axes];
+        boolean scheduled = false;
+        for (int c = 0; c < axes; c++) {
+            dividers[c] = getChannelDivider(c);
+            if (dividers[c] > 1) scheduled = true;
+        }
+        return scheduled ? dividers : null;
+    }
+
+    // comma separated dividers as kept in module.N.channel.dividers, missing channels default to 1
+    public String getChannelRates() {
+        if (channelDividers == null) return null;
+        StringBuilder builder = new StringBuilder();
+        for (int c = 0; c < channelDividers.length; c++) {
+            if (c > 0) builder.append(',');
+            builder.append(channelDividers[c]);
+        }
+        return builder.toString();
+    }
+
+    public void setChannelRates(String rates) {
+        channelDividers = null;
+        if (rates == null || rates.trim().isEmpty()) return;
+        String[] parts = rates.split(",");
+        int[] dividers = new int[parts.length];
+        boolean scheduled = false;
+        for (int c = 0; c < parts.length; c++) {
+            try {
+                dividers[c] = Math.max(1, Integer.parseInt(parts[c].trim()));
+            } catch (NumberFormatException e) {
+                dividers[c] = 1;
+            }
+            if (dividers[c] > 1) scheduled = true;
+        }
+        if (scheduled) channelDividers = dividers;
     }
 
     public boolean isReady() {
@@ -61,6 +113,15 @@ public class Module {
         return moduleId;
     }
 
+    // null means the module sits on the default serial.port
+    public String getPort() {
+        return port;
+    }
+
+    public void setPort(String port) {
+        this.port = port;
+    }
+
     public void setConfig(String config) {
         this.config = config;
     }
@@ -84,6 +145,8 @@ public class Module {
                 ", type='" + type + '\'' +
                 ", id=" + id +
                 ", moduleId='" + moduleId + '\'' +
+                ", port='" + port + '\'' +
+                ", channelRates='" + getChannelRates() + '\'' +
                 ", isActive=" + isActive +
                 ", isReady=" + isReady +
                 '}';
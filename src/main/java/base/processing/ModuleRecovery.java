@@ -0,0 +1,58 @@
+package base.processing;
+
+import base.Editor;
+
+import java.util.concurrent.TimeUnit;
+
+// a module that keeps failing is taken out of the schedule and only probed with $AAM, each
+// failed probe doubles the wait before the next one, the first answer puts it back
+public class ModuleRecovery {
+
+    private static final int MAX_FAILURES = 3;
+    private static final long INITIAL_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(64);
+
+    private final Editor editor;
+    private final String moduleId;
+    private int failures = 0;
+    private boolean dropped = false;
+    private long backoff;
+    private long nextProbe;
+
+    public ModuleRecovery(Editor editor, String moduleId) {
+        this.editor = editor;
+        this.moduleId = moduleId;
+    }
+
+    public boolean isDropped() {
+        return dropped;
+    }
+
+    public boolean isProbeDue(long now) {
+        return dropped && now - nextProbe >= 0;
+    }
+
+    public void success() {
+        failures = 0;
+    }
+
+    public void failure(long now) {
+        if (dropped || ++failures < MAX_FAILURES) return;
+        dropped = true;
+        backoff = INITIAL_BACKOFF;
+        nextProbe = now + backoff;
+        editor.statusError(String.format("Модуль %s не відповідає, опитування призупинено", moduleId));
+    }
+
+    public void probeFailed(long now) {
+        backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        nextProbe = now + backoff;
+    }
+
+    public void restored() {
+        dropped = false;
+        failures = 0;
+        editor.statusNotice(String.format("Модуль %s знову відповідає, опитування відновлено", moduleId));
+    }
+
+}
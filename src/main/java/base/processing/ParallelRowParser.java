@@ -0,0 +1,175 @@
+package base.processing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses the data section of a text .fim on the common ForkJoinPool. Each window of the file is split at
+ * newlines into chunks of about CHUNK bytes, every chunk is parsed into primitive columns by its own task
+ * and the chunks reach the consumer in file order. Only one window is held at a time, whatever the file size.
+ * Header lines are expected before {@code from}, a key=value line inside the data section is skipped.
+ */
+public class ParallelRowParser {
+
+    // below this the sequential MappedRowReader is as fast as a pool
+    public static final long THRESHOLD = 16L << 20;
+    private static final int CHUNK = 2 << 20;
+    // parsed columns take about as much heap as the text, so a window stays well below the usual -Xmx
+    private static final long WINDOW_LIMIT = 32L << 20;
+    private static final int INITIAL_ROWS = 1 << 12;
+
+    public interface Consumer {
+        void chunk(Chunk chunk) throws Exception;
+    }
+
+    // rows of one chunk stored column by column, a row shorter than the widest one is padded with MISSING
+    public static class Chunk {
+
+        private float[][] columns = new float[0][];
+        private long[] timestamps = new long[INITIAL_ROWS];
+        private int rows = 0;
+        private int capacity = INITIAL_ROWS;
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getColumns() {
+            return columns.length;
+        }
+
+        public float get(int column, int row) {
+            return columns[column][row];
+        }
+
+        // instant the row was sampled, 0 in a file that does not keep it
+        public long getTimestamp(int row) {
+            return timestamps[row];
+        }
+
+        // {@code out} gets the row padded or cut to its length
+        public void getRow(int row, float[] out) {
+            for (int c = 0; c < out.length; c++) {
+                out[c] = c < columns.length ? columns[c][row] : SampleFrame.MISSING;
+            }
+        }
+
+        void add(long timestamp, float[] values, int count) {
+            if (rows == capacity) {
+                capacity *= 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                for (int c = 0; c < columns.length; c++) columns[c] = Arrays.copyOf(columns[c], capacity);
+            }
+            if (count > columns.length) {
+                int old = columns.length;
+                columns = Arrays.copyOf(columns, count);
+                for (int c = old; c < count; c++) {
+                    columns[c] = new float[capacity];
+                    Arrays.fill(columns[c], 0, rows, SampleFrame.MISSING);
+                }
+            }
+            for (int c = 0; c < columns.length; c++) {
+                columns[c][rows] = c < count ? values[c] : SampleFrame.MISSING;
+            }
+            timestamps[rows] = timestamp;
+            rows++;
+        }
+
+    }
+
+    private ParallelRowParser() {
+    }
+
+    // {@code timestamps}: the rows lead with their instant, see RowFormat.TIMESTAMPS
+    public static void parse(File file, long from, boolean timestamps, Consumer consumer) throws Exception {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long window = Math.min((long) CHUNK * Math.max(1, pool.getParallelism()) * 2, WINDOW_LIMIT);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = from;
+            while (position < size) {
+                int length = (int) Math.min(window, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = length;
+                if (position + length < size) {
+                    // the window ends inside a line, the next one starts with it
+                    end = lastLineEnd(buffer, length);
+                    if (end == 0) throw new IOException("Line longer than " + window + " bytes at " + position);
+                }
+                for (Chunk chunk : pool.invoke(new ParseTask(buffer, 0, end, timestamps))) {
+                    consumer.chunk(chunk);
+                }
+                position += end;
+            }
+        }
+    }
+
+    // index just past the last '\n' of the buffer, 0 when there is none
+    private static int lastLineEnd(MappedByteBuffer buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    private static class ParseTask extends RecursiveTask<List<Chunk>> {
+
+        private final MappedByteBuffer buffer;
+        private final int from;
+        private final int to;
+        private final boolean timestamps;
+
+        ParseTask(MappedByteBuffer buffer, int from, int to, boolean timestamps) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.timestamps = timestamps;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            int middle = to - from > CHUNK ? nextLineStart(from + (to - from) / 2) : to;
+            if (middle >= to) return Collections.singletonList(parseChunk());
+            ParseTask left = new ParseTask(buffer, from, middle, timestamps);
+            left.fork();
+            List<Chunk> right = new ParseTask(buffer, middle, to, timestamps).compute();
+            List<Chunk> chunks = new ArrayList<>(left.join());
+            chunks.addAll(right);
+            return chunks;
+        }
+
+        private int nextLineStart(int index) {
+            for (int i = index; i < to; i++) {
+                if (buffer.get(i) == '\n') return i + 1;
+            }
+            return to;
+        }
+
+        private Chunk parseChunk() {
+            RowParser parser = new RowParser();
+            parser.setTimestamps(timestamps);
+            Chunk chunk = new Chunk();
+            int start = from;
+            for (int i = from; i <= to; i++) {
+                if (i < to && buffer.get(i) != '\n') continue;
+                if (parser.load(buffer, start, i) && parser.equalsIndex() == -1) {
+                    int count = parser.parseFields();
+                    chunk.add(parser.getTimestamp(), parser.getValues(), count);
+                }
+                start = i + 1;
+            }
+            return chunk;
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package base.processing;
+
+public class RowFormat {
+
+    // header key of a text .fim whose rows lead with the instant they were sampled, in ms since the epoch
+    public static final String TIMESTAMPS = "timestamps";
+    public static final String TIMESTAMPS_MS = "ms";
+    private static final int DECIMALS = 5;
+    private static final long SCALE = 100000L;
+
+    // fixed point without exponent, trailing zeros stripped: 2.5, -0.0312, 0
+    public static void append(StringBuilder builder, float value) {
+        // a missing sample is an empty field: "1.5,,0.25"
+        if (Float.isNaN(value)) return;
+        long scaled = Math.round(value * (double) SCALE);
+        if (scaled < 0) {
+            builder.append('-');
+            scaled = -scaled;
+        }
+        builder.append(scaled / SCALE);
+        long fraction = scaled % SCALE;
+        if (fraction == 0) return;
+        int digits = DECIMALS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        builder.append('.');
+        for (long i = fraction * 10; i < pow10(digits); i *= 10) {
+            builder.append('0');
+        }
+        builder.append(fraction);
+    }
+
+    public static void append(StringBuilder builder, float[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i != 0) builder.append(',');
+            append(builder, values[i]);
+        }
+    }
+
+    // 1700000000000,2.5,,0.25
+    public static void append(StringBuilder builder, long timestamp, float[] values) {
+        builder.append(timestamp).append(',');
+        append(builder, values);
+    }
+
+    private static long pow10(int digits) {
+        long result = 1;
+        for (int i = 0; i < digits; i++) result *= 10;
+        return result;
+    }
+
+}
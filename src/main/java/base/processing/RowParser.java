@@ -0,0 +1,106 @@
+package base.processing;
+
+import libraries.I7000Parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// one line of a text .fim taken from a mapped buffer and parsed without Strings; every thread has its own
+final class RowParser {
+
+    private byte[] line = new byte[256];
+    private float[] values = new float[16];
+    private int length;
+    private boolean timestamps;
+    private long timestamp;
+
+    // copies [from, to) with absolute reads, so threads may share the buffer; false for an empty or comment line
+    boolean load(ByteBuffer buffer, int from, int to) {
+        length = to - from;
+        if (length > 0 && buffer.get(to - 1) == '\r') length--;
+        if (length == 0 || buffer.get(from) == '#') return false;
+        if (line.length < length) line = new byte[Math.max(length, line.length * 2)];
+        for (int i = 0; i < length; i++) line[i] = buffer.get(from + i);
+        return true;
+    }
+
+    // index of '=' in a key=value line, -1 in a data row
+    int equalsIndex() {
+        int index = indexOf(0, (byte) '=');
+        return index == length ? -1 : index;
+    }
+
+    String key(int equals) {
+        return new String(line, 0, equals, StandardCharsets.UTF_8).trim();
+    }
+
+    String value(int equals) {
+        return new String(line, equals + 1, length - equals - 1, StandardCharsets.UTF_8).trim();
+    }
+
+    // rows of a file with RowFormat.TIMESTAMPS lead with the instant they were sampled
+    void setTimestamps(boolean timestamps) {
+        this.timestamps = timestamps;
+    }
+
+    // fields go to getValues(), the number of fields is returned; a leading instant goes to getTimestamp() instead
+    int parseFields() {
+        int count = 0;
+        int field = 0;
+        timestamp = 0;
+        if (timestamps) {
+            int end = indexOf(0, (byte) ',');
+            timestamp = parseTimestamp(0, end);
+            field = end + 1;
+        }
+        while (field <= length) {
+            int end = indexOf(field, (byte) ',');
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = parseField(field, end);
+            field = end + 1;
+        }
+        return count;
+    }
+
+    float[] getValues() {
+        return values;
+    }
+
+    // ms since the epoch, 0 when the row has none
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    // a float would round an instant to minutes, it is read as a long
+    private long parseTimestamp(int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) return 0;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // an empty field is a missing sample; older files may hold exponents the fast path does not take
+    private float parseField(int from, int to) {
+        if (from == to) return SampleFrame.MISSING;
+        float value = I7000Parser.parseDecimal(line, from, to);
+        if (!Float.isNaN(value)) return value;
+        try {
+            return Float.parseFloat(new String(line, from, to - from, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return SampleFrame.MISSING;
+        }
+    }
+
+    // {@code length} when the value is not there
+    private int indexOf(int from, byte value) {
+        for (int i = from; i < length; i++) {
+            if (line[i] == value) return i;
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,41 @@
+package base.processing;
+
+public class SampleFrame {
+
+    // value of a module that did not answer in this cycle
+    public static final float MISSING = Float.NaN;
+
+    private long timestamp;
+    private final float[] values;
+
+    public SampleFrame(int columns) {
+        this.values = new float[columns];
+    }
+
+    public SampleFrame(long timestamp, float[] values) {
+        this.timestamp = timestamp;
+        this.values = values;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public float[] getValues() {
+        return values;
+    }
+
+    public int getColumns() {
+        return values.length;
+    }
+
+    public void copyFrom(SampleFrame frame) {
+        timestamp = frame.timestamp;
+        System.arraycopy(frame.values, 0, values, 0, Math.min(values.length, frame.values.length));
+    }
+
+}
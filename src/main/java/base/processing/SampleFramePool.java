@@ -0,0 +1,39 @@
+package base.processing;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SampleFramePool {
+
+    private final int columns;
+    private final int limit;
+    private final ConcurrentLinkedQueue<SampleFrame> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public SampleFramePool(int columns, int limit) {
+        this.columns = columns;
+        this.limit = limit;
+    }
+
+    public SampleFrame acquire() {
+        SampleFrame frame = frames.poll();
+        if (frame == null) return new SampleFrame(columns);
+        size.decrementAndGet();
+        return frame;
+    }
+
+    public void release(SampleFrame frame) {
+        if (frame.getColumns() != columns || size.get() >= limit) return;
+        size.incrementAndGet();
+        frames.offer(frame);
+    }
+
+    public void release(List<SampleFrame> batch) {
+        for (SampleFrame frame : batch) {
+            release(frame);
+        }
+        batch.clear();
+    }
+
+}
@@ -0,0 +1,75 @@
+package base.processing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// single producer (acquisition thread) / single consumer (persist stage)
+public class SampleRing {
+
+    public interface FrameConsumer {
+        void accept(SampleFrame frame) throws Exception;
+    }
+
+    private final int mask;
+    private final SampleFrame[] frames;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private long claimed = -1;
+
+    public SampleRing(int capacity, int columns) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        frames = new SampleFrame[size];
+        for (int i = 0; i < size; i++) {
+            frames[i] = new SampleFrame(columns);
+        }
+    }
+
+    public int getColumns() {
+        return frames[0].getColumns();
+    }
+
+    // producer side: returns a free slot, or null when the consumer is behind
+    public SampleFrame claim() {
+        long position = head.get();
+        if (position - tail.get() > mask) {
+            overruns.incrementAndGet();
+            claimed = -1;
+            return null;
+        }
+        claimed = position;
+        return frames[(int) (position & mask)];
+    }
+
+    public void publish(long timestamp) {
+        if (claimed < 0) return;
+        frames[(int) (claimed & mask)].setTimestamp(timestamp);
+        head.lazySet(claimed + 1);
+        claimed = -1;
+    }
+
+    // consumer side
+    // the frame belongs to the ring again once accept() returns
+    public int drain(FrameConsumer consumer) throws Exception {
+        long position = tail.get();
+        long limit = head.get();
+        int count = 0;
+        try {
+            for (; position < limit; position++, count++) {
+                consumer.accept(frames[(int) (position & mask)]);
+            }
+        } finally {
+            tail.lazySet(position);
+        }
+        return count;
+    }
+
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+}
@@ -0,0 +1,285 @@
+package base.processing;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Sidecar of an experiment file, name.fim.idx: "FIMI", version, file kind and interval, then one entry
+ * of [row][byte offset][timestamp in ms] every {@code interval} rows. In a text file the offset is that of the row,
+ * in a binary one that of the block the row starts, so a reader can seek there and skip at most one interval.
+ * The acquisition writer appends entries as rows go out; an older file, or one the index no longer matches,
+ * is scanned from the last entry that still holds. Text rows written before RowFormat.TIMESTAMPS have no instant, timestamp 0.
+ * A binary scan ends at a block cut short and throws at a corrupt one, so no entry ever lies beyond either.
+ */
+public class TimeIndex implements Closeable {
+
+    private static final byte[] MAGIC = {'F', 'I', 'M', 'I'};
+    // version 1 could hold entries past a torn block, those files are scanned again
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = MAGIC.length + 2 + 1 + 4;
+    private static final int ENTRY_LENGTH = 3 * 8;
+
+    private final File data;
+    private final boolean binary;
+    private final int interval;
+    private long[] rowAt = new long[64];
+    private long[] offsets = new long[64];
+    private long[] timestamps = new long[64];
+    private int size = 0;
+    private long rows = 0;
+    private long end = -1;
+    private DataOutputStream out;
+
+    private TimeIndex(File data, boolean binary, int interval) {
+        this.data = data;
+        this.binary = binary;
+        this.interval = Math.max(1, interval);
+    }
+
+    public static File fileOf(File data) {
+        return new File(data.getPath() + ".idx");
+    }
+
+    // the index is rebuilt the next time it is needed
+    public static void delete(File data) {
+        File file = fileOf(data);
+        if (file.exists() && !file.delete()) file.deleteOnExit();
+    }
+
+    /**
+     * Loads the index of {@code data}, brings it up to the end of the file and keeps the sidecar open for
+     * {@link #record}. A sidecar with another interval keeps its own.
+     */
+    public static TimeIndex open(File data, int interval) throws IOException {
+        boolean binary = ExperimentFormat.isBinary(data);
+        ExperimentFormat.Header header = binary ? ExperimentFormat.readHeader(data) : null;
+        long start = binary ? ExperimentFormat.headerLength(header) : textStart(data);
+        File file = fileOf(data);
+        TimeIndex index = read(file, data, binary, start);
+        if (index == null) {
+            index = new TimeIndex(data, binary, interval);
+            index.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            index.out.write(MAGIC);
+            index.out.writeShort(VERSION);
+            index.out.writeByte(binary ? 1 : 0);
+            index.out.writeInt(index.interval);
+        } else {
+            index.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        }
+        try {
+            long from = index.size == 0 ? start : index.offsets[index.size - 1];
+            if (binary) {
+                index.scanBinary(header, from);
+            } else {
+                index.scanText(from);
+            }
+            index.out.flush();
+        } catch (IOException e) {
+            index.close();
+            delete(data);
+            throw e;
+        }
+        return index;
+    }
+
+    // rows of one line (text) or one block (binary) starting at {@code offset}, the first sampled at {@code timestamp}
+    public void record(long offset, long timestamp, int count) throws IOException {
+        if (size == 0 || rows - rowAt[size - 1] >= interval) {
+            add(rows, offset, timestamp);
+            if (out != null) {
+                out.writeLong(rows);
+                out.writeLong(offset);
+                out.writeLong(timestamp);
+            }
+        }
+        rows += count;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) return;
+        try {
+            out.close();
+        } finally {
+            out = null;
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // binary file: offset just past the last whole block, where the writer goes on
+    public long getEnd() {
+        return end;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getRow(int entry) {
+        return rowAt[entry];
+    }
+
+    public long getOffset(int entry) {
+        return offsets[entry];
+    }
+
+    public long getTimestamp(int entry) {
+        return timestamps[entry];
+    }
+
+    // last entry at or before {@code row}, -1 when there is none
+    public int floor(long row) {
+        int index = Arrays.binarySearch(rowAt, 0, size, row);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    // instant of row 0 from the first entry that has one, 0 when none has
+    public long getOrigin(int period) {
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > 0) return timestamps[i] - rowAt[i] * period;
+        }
+        return 0;
+    }
+
+    // ms from the start of the run to {@code row}, interpolated between entries; rows without an instant are {@code period} apart
+    public long timeOf(long row, int period) {
+        long origin = getOrigin(period);
+        int i = floor(row);
+        if (i < 0) return row * period;
+        long time = elapsed(i, origin, period);
+        if (i + 1 < size) {
+            long next = elapsed(i + 1, origin, period);
+            return time + (next - time) * (row - rowAt[i]) / (rowAt[i + 1] - rowAt[i]);
+        }
+        return time + (row - rowAt[i]) * period;
+    }
+
+    // first row sampled at or after {@code time} ms from the start of the run, the row count when there is none
+    public long rowOf(long time, int period) {
+        long origin = getOrigin(period);
+        int i = -1;
+        while (i + 1 < size && elapsed(i + 1, origin, period) <= time) i++;
+        if (i < 0) return 0;
+        long start = elapsed(i, origin, period);
+        long row;
+        if (i + 1 < size) {
+            long next = elapsed(i + 1, origin, period);
+            row = rowAt[i] + (time - start) * (rowAt[i + 1] - rowAt[i]) / Math.max(1, next - start);
+            row = Math.min(row, rowAt[i + 1]);
+        } else {
+            row = rowAt[i] + (time - start) / period;
+        }
+        return Math.min(row, rows);
+    }
+
+    private long elapsed(int entry, long origin, int period) {
+        return origin != 0 && timestamps[entry] > 0 ? timestamps[entry] - origin : rowAt[entry] * period;
+    }
+
+    private void add(long row, long offset, long timestamp) {
+        if (size == rowAt.length) {
+            rowAt = Arrays.copyOf(rowAt, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+        }
+        rowAt[size] = row;
+        offsets[size] = offset;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    /**
+     * Entries of the sidecar that still match {@code data}, the sidecar cut after the last of them.
+     * Null when it is missing, of another version or kind, or does not start at the first row.
+     */
+    private static TimeIndex read(File file, File data, boolean binary, long start) throws IOException {
+        if (!file.exists() || file.length() < HEADER_LENGTH) return null;
+        long length = data.length();
+        TimeIndex index;
+        try (RandomAccessFile in = new RandomAccessFile(file, "rw")) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedShort() != VERSION) return null;
+            if ((in.readUnsignedByte() == 1) != binary) return null;
+            index = new TimeIndex(data, binary, in.readInt());
+            long entries = (in.length() - HEADER_LENGTH) / ENTRY_LENGTH;
+            DataInputStream entry = new DataInputStream(new BufferedInputStream(new FileInputStream(in.getFD())));
+            for (long i = 0; i < entries; i++) {
+                long row = entry.readLong();
+                long offset = entry.readLong();
+                long timestamp = entry.readLong();
+                if (offset >= length) break;
+                if (index.size == 0 ? row != 0 || offset != start :
+                        row <= index.rowAt[index.size - 1] || offset <= index.offsets[index.size - 1]) break;
+                index.add(row, offset, timestamp);
+            }
+            if (index.size == 0) return null;
+            // a text entry has to point just past a line break
+            while (!binary && index.size > 1 && !lineStart(data, index.offsets[index.size - 1])) index.size--;
+            in.setLength(HEADER_LENGTH + (long) index.size * ENTRY_LENGTH);
+        }
+        index.rows = index.rowAt[index.size - 1];
+        return index;
+    }
+
+    private static boolean lineStart(File data, long offset) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(data, "r")) {
+            in.seek(offset - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    // offset of the first row, the end of the file when it holds only the header
+    private static long textStart(File data) throws IOException {
+        long[] start = {data.length()};
+        scan(data, 0, new MappedRowReader.Handler() {
+            @Override
+            public void key(String key, String value) {
+            }
+
+            @Override
+            public boolean row(long timestamp, float[] values, int count, long offset) {
+                start[0] = offset;
+                return false;
+            }
+        });
+        return start[0];
+    }
+
+    private void scanText(long from) throws IOException {
+        scan(data, from, new MappedRowReader.Handler() {
+            @Override
+            public void key(String key, String value) {
+            }
+
+            @Override
+            public boolean row(long timestamp, float[] values, int count, long offset) throws IOException {
+                record(offset, timestamp, 1);
+                return true;
+            }
+        });
+    }
+
+    private void scanBinary(ExperimentFormat.Header header, long from) throws IOException {
+        end = ExperimentFormat.scanBlocks(data, header, from, (offset, count, timestamp) ->
+                record(offset, timestamp, count));
+    }
+
+    private static void scan(File data, long from, MappedRowReader.Handler handler) throws IOException {
+        try {
+            MappedRowReader.read(data, from, handler);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+}
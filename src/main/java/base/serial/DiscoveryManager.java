@@ -8,6 +8,7 @@ public class DiscoveryManager {
     private final SerialDiscovery serialDiscoverer = new SerialDiscovery();
 
     public DiscoveryManager() {
+        SimulatedBus.installFromPreferences();
         try {
             new Thread(serialDiscoverer).start();
         } catch (Exception e) {
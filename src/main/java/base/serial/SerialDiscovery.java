@@ -1,5 +1,6 @@
 package base.serial;
 
+import base.PreferencesData;
 import jssc.SerialPortList;
 
 import java.util.*;
@@ -44,7 +45,12 @@ public class SerialDiscovery implements Runnable, Discovery {
     }
 
     public synchronized void forceRefresh() {
-        List<String> ports = Arrays.asList(SerialPortList.getPortNames());
+        List<String> ports = new ArrayList<>(Arrays.asList(SerialPortList.getPortNames()));
+        // Ethernet converters can't be discovered, they are listed in preferences as tcp://host:port
+        for (String remote : PreferencesData.get("serial.port.remote", "").split(",")) {
+            if (!remote.trim().isEmpty()) ports.add(remote.trim());
+        }
+        if (SimulatedBus.isInstalled()) ports.add(SimulatedBus.PORT);
         if (ports.equals(oldPorts)) {
             return;
         }
@@ -0,0 +1,187 @@
+package base.serial;
+
+import SerialDriver.IDataReceiveAction;
+import SerialDriver.LoopbackDevice;
+import SerialDriver.LoopbackTransport;
+import base.PreferencesData;
+import libraries.I7000;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Half-duplex RS-485 line with simulated modules on it. A reply is delivered after the command's wire time,
+ * the module's latency with jitter and the reply's own wire time, and never overlaps the previous reply.
+ * Errors are a lost reply or a garbled byte; with the same seed and command sequence they repeat exactly.
+ */
+public class SimulatedBus implements LoopbackDevice {
+
+    public static final String PORT = "loop://simulator";
+    // start bit + 8 data bits + stop bit
+    private static final int BITS_PER_BYTE = 10;
+
+    private static volatile boolean installed = false;
+
+    private final Map<String, SimulatedModule> modules = new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream command = new ByteArrayOutputStream();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Random random;
+    private final int baudRate;
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double errorRate;
+    private final long origin = System.nanoTime();
+    private final LongAdder lostReplies = new LongAdder();
+    private final LongAdder garbledReplies = new LongAdder();
+    private long busyUntil = origin;
+
+    // baudRate 0 skips the wire time, a test then only pays for latency and jitter
+    public SimulatedBus(int baudRate, int latencyMillis, int jitterMillis, double errorRate, long seed) {
+        this.baudRate = baudRate;
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "simulated-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // simulator.modules lists type:address pairs, an empty list leaves the simulator off
+    public static void installFromPreferences() {
+        String list = PreferencesData.get("simulator.modules", "").trim();
+        if (list.isEmpty()) return;
+        SimulatedBus bus = new SimulatedBus(PreferencesData.getInteger("serial.port.rate", 115200),
+                PreferencesData.getInteger("simulator.latency", 2),
+                PreferencesData.getInteger("simulator.jitter", 1),
+                Double.parseDouble(PreferencesData.get("simulator.error.rate", "0")),
+                Long.parseLong(PreferencesData.get("simulator.seed", "1")));
+        String inputType = PreferencesData.get("analog.input.type", "05");
+        int format = PreferencesData.getInteger("signal.type", 0) | (I7000.useCRC ? 0x40 : 0);
+        for (String entry : list.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) continue;
+            bus.add(new SimulatedModule(parts[1].trim().toUpperCase(), parts[0].trim(), inputType, "0A", format));
+        }
+        bus.attach(PORT);
+    }
+
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    public void attach(String port) {
+        LoopbackTransport.attach(port, this);
+        if (PORT.equals(port)) installed = true;
+    }
+
+    public void add(SimulatedModule module) {
+        modules.put(module.getAddress(), module);
+    }
+
+    public Collection<SimulatedModule> getModules() {
+        return modules.values();
+    }
+
+    public long getLostReplies() {
+        return lostReplies.sum();
+    }
+
+    public long getGarbledReplies() {
+        return garbledReplies.sum();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // bytes may come in pieces, a command is complete at '\r'
+    @Override
+    public synchronized void received(byte[] data, int offset, int length, IDataReceiveAction line) {
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] != '\r') {
+                command.write(data[i]);
+                continue;
+            }
+            String text = new String(command.toByteArray(), StandardCharsets.US_ASCII);
+            command.reset();
+            String reply = answer(text);
+            if (reply != null) send(text.length() + 1, reply, line);
+        }
+    }
+
+    private String answer(String text) {
+        if (text.startsWith("#**")) {
+            float output = analogOutput();
+            for (SimulatedModule module : modules.values()) module.latch(seconds(), output);
+            return null;
+        }
+        if (text.length() < 3) return null;
+        SimulatedModule module = modules.get(text.substring(1, 3).toUpperCase());
+        if (module == null) return null;
+        String body = text;
+        if (module.useChecksum()) {
+            if (text.length() < 5) return null;
+            body = text.substring(0, text.length() - 2);
+            // a module ignores a command whose checksum does not match
+            if (!I7000.getCRC(body.toCharArray()).equalsIgnoreCase(text.substring(text.length() - 2))) return null;
+        }
+        String key = module.getAddress();
+        String reply = module.handle(body, seconds(), analogOutput());
+        if (!key.equals(module.getAddress())) {
+            modules.remove(key);
+            modules.put(module.getAddress(), module);
+        }
+        if (reply == null) return null;
+        return module.useChecksum() ? reply + I7000.getCRC(reply.toCharArray()) : reply;
+    }
+
+    private void send(int commandLength, String reply, IDataReceiveAction line) {
+        byte[] frame = (reply + "\r").getBytes(StandardCharsets.US_ASCII);
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            if (random.nextBoolean()) {
+                lostReplies.increment();
+                return;
+            }
+            garbledReplies.increment();
+            frame[1 + random.nextInt(frame.length - 2)] ^= 0x01;
+        }
+        long now = System.nanoTime();
+        long jitter = jitterNanos == 0 ? 0 : (long) ((random.nextDouble() * 2 - 1) * jitterNanos);
+        long start = Math.max(now + wireNanos(commandLength) + Math.max(0, latencyNanos + jitter), busyUntil);
+        busyUntil = start + wireNanos(frame.length);
+        long delay = busyUntil - now;
+        if (delay <= 0) {
+            line.dataReceiveAction(frame, 0, frame.length);
+        } else {
+            scheduler.schedule(() -> line.dataReceiveAction(frame, 0, frame.length), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // the first 7021 on the bus drives the inputs, so a DAC signal shows up on the charts
+    private float analogOutput() {
+        for (SimulatedModule module : modules.values()) {
+            if (module.getType().equals("7021")) return module.getOutput();
+        }
+        return 0;
+    }
+
+    private double seconds() {
+        return (System.nanoTime() - origin) / 1e9;
+    }
+
+    private long wireNanos(int bytes) {
+        if (baudRate <= 0) return 0;
+        return TimeUnit.SECONDS.toNanos(bytes * BITS_PER_BYTE) / baudRate;
+    }
+
+}
@@ -0,0 +1,151 @@
+package base.serial;
+
+import libraries.I7000Parser;
+
+import java.util.Locale;
+
+// one I-7000 module as seen from the bus: answers the commands StartFP100 sends, without CRC and '\r'
+public class SimulatedModule {
+
+    private static final double PERIOD_SECONDS = 10;
+
+    private final String type;
+    private final int channels;
+    private final boolean analogOutput;
+    private String address;
+    private String inputType;
+    private String baudCode;
+    private int format;
+    private float output = 0;
+    private float[] latched;
+    private boolean fresh = false;
+
+    public SimulatedModule(String address, String type, String inputType, String baudCode, int format) {
+        this.address = address;
+        this.type = type;
+        this.inputType = inputType;
+        this.baudCode = baudCode;
+        this.format = format;
+        this.analogOutput = type.equals("7021");
+        this.channels = type.equals("7017F") ? 8 : 1;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public float getOutput() {
+        return output;
+    }
+
+    // bit 6 of the data format switches the checksum on
+    public boolean useChecksum() {
+        return (format & 0x40) != 0;
+    }
+
+    // #** latches every analog input at the same instant, $AA4 returns the latched values
+    void latch(double seconds, float offset) {
+        if (analogOutput) return;
+        latched = sample(seconds, offset);
+        fresh = true;
+    }
+
+    /**
+     * Answers one command, {@code command} holds everything up to the checksum.
+     * Returns null when a real module would stay silent.
+     */
+    String handle(String command, double seconds, float offset) {
+        String body = command.substring(3);
+        switch (command.charAt(0)) {
+            case '$':
+                if (body.equals("M")) return "!" + address + type;
+                if (body.equals("2")) return "!" + address + inputType + baudCode + String.format("%02X", format);
+                if (body.equals("4") && !analogOutput) {
+                    String reply = ">" + address + (fresh ? "1" : "0") +
+                            formatValues(latched == null ? sample(seconds, offset) : latched);
+                    fresh = false;
+                    return reply;
+                }
+                break;
+            case '#':
+                if (analogOutput) return setOutput(body);
+                if (body.isEmpty()) return ">" + formatValues(sample(seconds, offset));
+                if (body.length() == 1 && channels > 1 && body.charAt(0) >= '0' && body.charAt(0) < '0' + channels) {
+                    return ">" + formatValue(sample(seconds, offset)[body.charAt(0) - '0']);
+                }
+                break;
+            case '%':
+                return configure(body);
+        }
+        return "?" + address;
+    }
+
+    // #AAdd.ddd, '!' means the value was clipped to the 0..10 V range
+    private String setOutput(String body) {
+        if (body.isEmpty()) return "?" + address;
+        float value = I7000Parser.parseDecimal(body.getBytes(), 0, body.length());
+        if (Float.isNaN(value)) return "?" + address;
+        output = Math.max(0, Math.min(10, value));
+        return output == value ? ">" : "!" + address;
+    }
+
+    // %AANNTTCCFF
+    private String configure(String body) {
+        if (body.length() != 8) return "?" + address;
+        try {
+            int newFormat = Integer.parseInt(body.substring(6, 8), 16);
+            address = body.substring(0, 2).toUpperCase(Locale.US);
+            inputType = body.substring(2, 4);
+            baudCode = body.substring(4, 6);
+            format = newFormat;
+        } catch (NumberFormatException e) {
+            return "?" + address;
+        }
+        return "!" + address;
+    }
+
+    // a slow sine per channel on top of whatever the analog output on the bus is set to
+    private float[] sample(double seconds, float offset) {
+        float fullScale = I7000Parser.fullScale(parseInputType());
+        float[] values = new float[channels];
+        int phase = Integer.parseInt(address, 16);
+        for (int c = 0; c < channels; c++) {
+            double wave = Math.sin(2 * Math.PI * seconds / PERIOD_SECONDS + (phase + c) * Math.PI / 8);
+            float value = (float) (offset * fullScale / 10 + fullScale / 2 * wave);
+            values[c] = Math.max(-fullScale, Math.min(fullScale, value));
+        }
+        return values;
+    }
+
+    private String formatValues(float[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (float value : values) builder.append(formatValue(value));
+        return builder.toString();
+    }
+
+    private String formatValue(float value) {
+        float fullScale = I7000Parser.fullScale(parseInputType());
+        switch (format & 0x03) {
+            case I7000Parser.PERCENT_OF_RANGE:
+                return String.format(Locale.US, "%+07.2f", value / fullScale * 100);
+            case I7000Parser.HEXADECIMAL:
+                int code = Math.round(value / fullScale * (value < 0 ? 32768 : 32767));
+                return String.format("%04X", code & 0xFFFF);
+            default:
+                return String.format(Locale.US, "%+07.3f", value);
+        }
+    }
+
+    private int parseInputType() {
+        try {
+            return Integer.parseInt(inputType, 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
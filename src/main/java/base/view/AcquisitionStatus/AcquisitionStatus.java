@@ -0,0 +1,49 @@
+package base.view.AcquisitionStatus;
+
+import base.Editor;
+import base.processing.AcquisitionMetrics;
+
+import javax.swing.*;
+import java.awt.*;
+
+public class AcquisitionStatus extends JDialog {
+
+    private static final int REFRESH_PERIOD = 500;
+
+    private final JTextArea status = new JTextArea(20, 90);
+    private final Timer timer = new Timer(REFRESH_PERIOD, event -> refresh());
+
+    public AcquisitionStatus(Editor editor) {
+        super(editor);
+        setTitle("Стан опитування");
+        status.setEditable(false);
+        status.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JPanel rootPanel = new JPanel(new BorderLayout());
+        rootPanel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        rootPanel.add(new JScrollPane(status), BorderLayout.CENTER);
+        JButton reset = new JButton("Скинути");
+        reset.addActionListener(event -> {
+            AcquisitionMetrics.getInstance().reset();
+            refresh();
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(reset);
+        rootPanel.add(buttons, BorderLayout.SOUTH);
+        add(rootPanel);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        refresh();
+        pack();
+        timer.start();
+    }
+
+    private void refresh() {
+        status.setText(AcquisitionMetrics.getInstance().report());
+    }
+
+    @Override
+    public void dispose() {
+        timer.stop();
+        super.dispose();
+    }
+
+}
@@ -1,10 +1,12 @@
 package base.view.ModuleSettings;
 
+import base.Base;
 import base.Editor;
 import base.PreferencesData;
 import base.processing.Module;
 
 import javax.swing.*;
+import java.util.ArrayList;
 import java.util.List;
 
 import static base.helpers.BaseHelper.LittleBitPreferencesModuleTest;
@@ -17,6 +19,7 @@ public class ModulePanel extends JPanel{
     private JLabel id;
     private JLabel type;
     private JCheckBox isActiveCheckBox;
+    private static final String DEFAULT_PORT = "Порт за замовчуванням";
 
     public ModulePanel(ModuleSettings settings, Module module) {
         super();
@@ -36,6 +39,8 @@ public class ModulePanel extends JPanel{
                 PreferencesData.remove(String.format("module.%s.config", i));
                 PreferencesData.remove(String.format("module.%s.type", i));
                 PreferencesData.remove(String.format("module.%s.active", i));
+                PreferencesData.remove(String.format("module.%s.port", i));
+                PreferencesData.remove(String.format("module.%s.channel.dividers", i));
             }
             PreferencesData.setInteger("number.of.modules", numberOfModules - 1);
             editor.getExperiment().removeModule(module.getId());
@@ -48,6 +53,12 @@ public class ModulePanel extends JPanel{
                 PreferencesData.set(String.format("module.%s.config", i), list.get(i).getConfig());
                 PreferencesData.set(String.format("module.%s.type", i), list.get(i).getType());
                 PreferencesData.setBoolean(String.format("module.%s.active", i), list.get(i).isActive());
+                if (list.get(i).getPort() != null) {
+                    PreferencesData.set(String.format("module.%s.port", i), list.get(i).getPort());
+                }
+                if (list.get(i).getChannelRates() != null) {
+                    PreferencesData.set(String.format("module.%s.channel.dividers", i), list.get(i).getChannelRates());
+                }
             }
             PreferencesData.save();
             LittleBitPreferencesModuleTest(editor);
@@ -58,8 +69,51 @@ public class ModulePanel extends JPanel{
             PreferencesData.setBoolean(String.format("module.%s.active", module.getId()), isActiveCheckBox.isSelected());
             PreferencesData.save();
         });
-        settingsButton.addActionListener(e -> {JOptionPane.showMessageDialog(editor, "Тут мають бути налаштування", "Модуль: " + module.getModuleId(), JOptionPane.INFORMATION_MESSAGE);});
+        settingsButton.addActionListener(e -> {
+            selectPort(editor, module);
+            if (module.getAxes() > 1) selectChannelRates(editor, module);
+        });
         add(panel);
     }
 
+    private void selectPort(Editor editor, Module module) {
+        List<String> ports = new ArrayList<>();
+        ports.add(DEFAULT_PORT);
+        ports.addAll(Base.getDiscoveryManager().discovery());
+        if (module.getPort() != null && !ports.contains(module.getPort())) ports.add(module.getPort());
+        String result = (String) JOptionPane.showInputDialog(editor, "Послідовний порт, до якого підключено модуль",
+                "Модуль: " + module.getModuleId(), JOptionPane.QUESTION_MESSAGE, null, ports.toArray(new String[0]),
+                module.getPort() == null ? DEFAULT_PORT : module.getPort());
+        if (result == null) return;
+        String key = String.format("module.%s.port", module.getId());
+        if (result.equals(DEFAULT_PORT)) {
+            module.setPort(null);
+            PreferencesData.remove(key);
+        } else {
+            module.setPort(result);
+            PreferencesData.set(key, result);
+        }
+        PreferencesData.save();
+    }
+
+    private void selectChannelRates(Editor editor, Module module) {
+        StringBuilder current = new StringBuilder();
+        for (int c = 0; c < module.getAxes(); c++) {
+            if (c > 0) current.append(',');
+            current.append(module.getChannelDivider(c));
+        }
+        String result = (String) JOptionPane.showInputDialog(editor,
+                "Період опитування кожного каналу в циклах, через кому (1 - кожен цикл)",
+                "Модуль: " + module.getModuleId(), JOptionPane.QUESTION_MESSAGE, null, null, current.toString());
+        if (result == null) return;
+        module.setChannelRates(result);
+        String key = String.format("module.%s.channel.dividers", module.getId());
+        if (module.getChannelRates() == null) {
+            PreferencesData.remove(key);
+        } else {
+            PreferencesData.set(key, module.getChannelRates());
+        }
+        PreferencesData.save();
+    }
+
 }
@@ -102,6 +102,8 @@ public class ModuleSettings extends BaseView implements ItemListener {
             PreferencesData.set(String.format("module.%s.id", i), list.get(i)[0]);
             PreferencesData.set(String.format("module.%s.config", i), list.get(i)[1]);
             PreferencesData.set(String.format("module.%s.type", i), list.get(i)[2]);
+            PreferencesData.remove(String.format("module.%s.port", i));
+            PreferencesData.remove(String.format("module.%s.channel.dividers", i));
             if (list.get(i)[2].contains(PreferencesData.get("type.dac.module"))) {
                 PreferencesData.set(String.format("module.%s.id", PreferencesData.get("type.dac.module")), list.get(i)[0]);
             }
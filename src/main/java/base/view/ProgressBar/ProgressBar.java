@@ -6,6 +6,8 @@ import javax.swing.*;
 import java.awt.event.WindowEvent;
 
 public class ProgressBar extends JDialog {
+    private static final int CLOSE_DELAY = 500;
+
     private JPanel rootPanel;
     private JProgressBar progressBar1;
     private JLabel label;
@@ -21,11 +23,11 @@ public class ProgressBar extends JDialog {
         pack();
     }
 
+    // queued after the event that shows the dialog, so it is hidden even if the stop was quicker than the dialog
     public void closeProgressBar() {
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException ignored) { }
-        setVisible(false);
+        Timer timer = new Timer(CLOSE_DELAY, event -> setVisible(false));
+        timer.setRepeats(false);
+        timer.start();
     }
 
 }
@@ -4,6 +4,7 @@ import SerialDriver.SerialDriver;
 import base.Editor;
 import base.PreferencesData;
 import base.helpers.SendOne;
+import base.helpers.SerialExecutors;
 import base.view.BaseView.BaseView;
 import libraries.I7000;
 
@@ -15,6 +16,7 @@ import java.awt.event.WindowEvent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Future;
 
 import static base.helpers.BaseHelper.parsePortException;
 
@@ -25,7 +27,7 @@ public class SearchModules extends BaseView implements ItemListener {
     private JProgressBar progressBar1;
     private JComboBox<String> cbStart;
     private JComboBox<String> cbStop;
-    private Thread searchThread = new Thread();
+    private Future<?> searchTask;
     private StringBuffer serialBuffer;
     private SerialDriver serialDriver;
     private List<String[]> list = new ArrayList<>();
@@ -41,7 +43,7 @@ public class SearchModules extends BaseView implements ItemListener {
         });
         buttonRightPRListener(e -> windowClose());
         buttonLeftPRListener(e -> {
-            if (searchThread.isAlive()) {
+            if (isSearching()) {
                 editor.statusNotice("Іде пошук!!!");
                 return;
             }
@@ -52,16 +54,12 @@ public class SearchModules extends BaseView implements ItemListener {
         }
         serialBuffer = new StringBuffer();
         buttonLeftPLListener(e -> {
-            if (searchThread.isAlive()) {
-                searchThread.stop();
-                serialDriver.dispose();
-                list.clear();
-                progressBar1.setValue(0);
-                startSearch();
+            if (isSearching()) {
+                // the search closes the port and resets the dialog itself
+                searchTask.cancel(true);
             } else {
                 getButtonLeftPL().setText(" Зупинити пошук ");
-                searchThread = new Thread(this::SearchDevices);
-                searchThread.start();
+                searchTask = SerialExecutors.submit(this::SearchDevices);
             }
         });
         initButtons("Розпочати пошук", "Гаразд", "Скасувати");
@@ -69,10 +67,7 @@ public class SearchModules extends BaseView implements ItemListener {
     }
 
     private void windowClose() {
-        if (searchThread.isAlive()) {
-            searchThread.stop();
-            serialDriver.dispose();
-        }
+        if (isSearching()) searchTask.cancel(true);
         list.clear();
         setVisible(false);
     }
@@ -87,28 +82,29 @@ public class SearchModules extends BaseView implements ItemListener {
             return;
         }
         try {
-            serialDriver = new SerialDriver(port, rate, s -> serialBuffer.append(s));
+            serialDriver = new SerialDriver(port, rate);
         } catch (Exception e) {
             parsePortException(editor, e);
             startSearch();
             return;
         }
         int wait = PreferencesData.getInteger("response.timeout");
-        for (int i = getStart(), j = getStart(), s = getEnd() - getStart() + 1, e = getEnd(); i <= e; i++) {
-            try {
-                serialDriver.write(I7000.getModuleName(String.format("%02X", i)));
-                Thread.sleep(wait);
+        try {
+            for (int i = getStart(), j = getStart(), s = getEnd() - getStart() + 1, e = getEnd(); i <= e; i++) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+                String reply = serialDriver.query(I7000.getModuleName(String.format("%02X", i)), wait);
+                if (reply != null) serialBuffer.append(reply);
                 progressBar1.setValue(90 * (i - j) / s);
-            } catch (Exception ex) {
-                editor.statusError(ex);
-                list.clear();
-                progressBar1.setValue(0);
-                startSearch();
-                serialDriver.dispose();
-                return;
             }
+        } catch (Exception ex) {
+            if (!(ex instanceof InterruptedException)) editor.statusError(ex);
+            list.clear();
+            progressBar1.setValue(0);
+            startSearch();
+            return;
+        } finally {
+            serialDriver.dispose();
         }
-        serialDriver.dispose();
         if (serialBuffer.length() == 0) {
             resMessage("Модулів не знайдено");
             return;
@@ -116,6 +112,11 @@ public class SearchModules extends BaseView implements ItemListener {
         StringTokenizer tokenizer = new StringTokenizer(serialBuffer.toString(), "\r");
         String[] knownModules = PreferencesData.getCollection("known.modules.types").toArray(new String[0]);
         while (tokenizer.hasMoreTokens()) {
+            if (Thread.currentThread().isInterrupted()) {
+                list.clear();
+                startSearch();
+                return;
+            }
             String token = I7000.removeCRC(0, 0, tokenizer.nextToken());
             if (token.startsWith("?")) continue;
             String name = token.substring(3);
@@ -145,6 +146,10 @@ public class SearchModules extends BaseView implements ItemListener {
        resMessage("Знайдено " + list.size() + " шт.");
     }
 
+    private boolean isSearching() {
+        return searchTask != null && !searchTask.isDone();
+    }
+
     public int getStart() {
         return cbStart.getSelectedIndex();
     }
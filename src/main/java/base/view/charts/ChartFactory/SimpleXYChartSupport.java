@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.NumberFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JComponent;
@@ -47,6 +48,7 @@ public final class SimpleXYChartSupport {
 
     private final XYStorage storage;
     private final SynchronousXYItemsModel itemsModel;
+    private final AtomicBoolean blockPending = new AtomicBoolean();
     private final XYPaintersModel paintersModel;
 
     private JComponent chartUI;
@@ -131,6 +133,39 @@ public final class SimpleXYChartSupport {
         else SwingUtilities.invokeLater(valuesUpdater);
     }
 
+    /**
+     * Adds {@code count} packets at once. The storage copies them, so the arrays
+     * can be reused as soon as this method returns; the chart is updated once for the whole block.
+     * <br><br><b>Note:</b> This method can be called from any thread.
+     *
+     * @param timestamps timestamps of the data packets
+     * @param values data packets
+     * @param count number of packets to add
+     */
+    public void addValues(final long[] timestamps, final long[][] values, final int count) {
+        for (int i = 0; i < count; i++) storage.addValues(timestamps[i], values[i]);
+        if (SwingUtilities.isEventDispatchThread()) {
+            blockAdded();
+            return;
+        }
+        // a loader faster than the EDT never queues more than one update
+        if (!blockPending.compareAndSet(false, true)) return;
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                blockPending.set(false);
+                blockAdded();
+            }
+        });
+    }
+
+    private void blockAdded() {
+        try {
+            itemsModel.valuesAdded();
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.INFO, "Results not synchronized", e); // NOI18N
+        }
+    }
+
     /**
      * Updates the details area of the chart.
      * <br><br><b>Note:</b> This method can be called from any thread.
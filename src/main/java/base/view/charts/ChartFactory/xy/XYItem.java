@@ -19,6 +19,7 @@ abstract class XYItem extends SynchronousXYItem {
 
     private long minY;
     private long maxY;
+    private boolean hasBounds;
 
 
     // --- Constructor ---------------------------------------------------------
@@ -56,8 +57,9 @@ abstract class XYItem extends SynchronousXYItem {
             LongRect oldBounds = new LongRect(bounds);
             LongRect dirtyBounds = new LongRect();
 
-            boolean initBounds = lastIndex == -1;
+            boolean initBounds = lastIndex == -1 || !hasBounds;
             int dirtyIndex = lastIndex == -1 ? 0 : lastIndex;
+            boolean initDirty = true;
 
             // Process other values
             for (int i = dirtyIndex; i <= index; i++) {
@@ -65,6 +67,9 @@ abstract class XYItem extends SynchronousXYItem {
                 long timestamp = getXValue(i);
                 long value = getYValue(i);
 
+                // Missing samples are painted as gaps and don't count in min/max or bounds
+                if (value == XYStorage.NO_VALUE) continue;
+
                 // Update item minY/maxY
                 minY = Math.min(value, minY);
                 maxY = Math.max(value, maxY);
@@ -77,6 +82,7 @@ abstract class XYItem extends SynchronousXYItem {
                     bounds.width = 0;
                     bounds.height = Math.max(value, initialMaxY) - bounds.y;
                     initBounds = false;
+                    hasBounds = true;
                 } else {
                     // Update item bounds
                     LongRect.add(bounds, timestamp, value);
@@ -87,11 +93,12 @@ abstract class XYItem extends SynchronousXYItem {
                 }
 
                 // Process dirty bounds
-                if (i == dirtyIndex) {
+                if (initDirty) {
                     // Setup dirty bounds
                     dirtyBounds.x = timestamp;
                     dirtyBounds.y = value;
                     dirtyBounds.width = getXValue(index) - dirtyBounds.x;
+                    initDirty = false;
                 } else {
                     // Update dirty y/height
                     long dirtyY = dirtyBounds.y;
@@ -101,6 +108,14 @@ abstract class XYItem extends SynchronousXYItem {
 
             }
 
+            if (initDirty) {
+                // Only missing samples arrived, repaint their time range
+                dirtyBounds.x = getXValue(dirtyIndex);
+                dirtyBounds.y = bounds.y;
+                dirtyBounds.width = getXValue(index) - dirtyBounds.x;
+                dirtyBounds.height = bounds.height;
+            }
+
             // Return ItemChange
             int indexesCount = index - lastIndex;
             int[] indexes = new int[indexesCount];
@@ -112,6 +127,7 @@ abstract class XYItem extends SynchronousXYItem {
 
             minY = Long.MAX_VALUE;
             maxY = Long.MIN_VALUE;
+            hasBounds = false;
 
             // Save oldBounds
             LongRect oldBounds = new LongRect(bounds);
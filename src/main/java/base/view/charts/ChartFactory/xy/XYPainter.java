@@ -6,6 +6,7 @@ import java.awt.GradientPaint;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
 import java.awt.Rectangle;
+import java.util.Arrays;
 import java.util.List;
 import org.netbeans.lib.profiler.charts.ChartContext;
 import org.netbeans.lib.profiler.charts.ChartItem;
@@ -130,8 +131,26 @@ public class XYPainter extends SynchronousXYItemPainter {
         int[] xPoints  = points[0];
         int[] yPoints  = points[1];
         int npoints = points[2][0];
+        int[] segments = points[3];
+
+        // missing samples split the line, every run of real values is painted on its own
+        for (int s = 0; s < segments.length; s++) {
+            int from = segments[s];
+            int to = s + 1 < segments.length ? segments[s + 1] : npoints;
+            int count = to - from;
+            int[] xSegment = new int[count + 2];
+            int[] ySegment = new int[count + 2];
+            System.arraycopy(xPoints, from, xSegment, 0, count);
+            System.arraycopy(yPoints, from, ySegment, 0, count);
+            paintSegment(g, xSegment, ySegment, count, context);
+        }
+
+    }
 
-        if (fillColor != null) {
+    private void paintSegment(Graphics2D g, int[] xPoints, int[] yPoints, int npoints,
+                              SynchronousXYChartContext context) {
+
+        if (fillColor != null && npoints > 1) {
             int zeroY = Utils.checkedInt(context.getViewY(context.getDataOffsetY()));
             zeroY = Math.max(Utils.checkedInt(context.getViewportOffsetY()), zeroY);
             zeroY = Math.min(Utils.checkedInt(context.getViewportOffsetY() +
@@ -156,7 +175,8 @@ public class XYPainter extends SynchronousXYItemPainter {
         if (lineColor != null) {
             g.setPaint(lineColor);
             g.setStroke(lineStroke);
-            g.drawPolyline(xPoints, yPoints, npoints);
+            if (npoints == 1) g.drawLine(xPoints[0], yPoints[0], xPoints[0], yPoints[0]);
+            else g.drawPolyline(xPoints, yPoints, npoints);
         }
 
     }
@@ -218,7 +238,8 @@ public class XYPainter extends SynchronousXYItemPainter {
 
         while (--idx >= firstVisible && getViewX(contx, xyItem, idx) == x) {
             long y = xyItem.getYValue(idx);
-            if (y > maxVal) {
+            if (y == XYStorage.NO_VALUE) continue;
+            if (maxVal == XYStorage.NO_VALUE || y > maxVal) {
                 maxVal = y;
                 maxIdx = idx;
             }
@@ -262,6 +283,10 @@ public class XYPainter extends SynchronousXYItemPainter {
 
         int[] xPoints = new int[visibleCount + 2];
         int[] yPoints = new int[visibleCount + 2];
+        int[] segments = new int[visibleCount];
+        int segmentsCount = 0;
+        boolean gap = true;
+        int nPoints = 0;
 
 
         double itemValueFactor = type == TYPE_RELATIVE ? getItemValueFactor(context,
@@ -270,14 +295,24 @@ public class XYPainter extends SynchronousXYItemPainter {
         for (int i = 0; i < visibleCount; i++) {
             int dataIndex = i == visibleCount - 1 ? lastIndex :
                     firstIndex + i * itemsStep;
-            xPoints[i] = Utils.checkedInt(Math.ceil(
+            if (item.getYValue(dataIndex) == XYStorage.NO_VALUE) {
+                gap = true;
+                continue;
+            }
+            if (gap) {
+                segments[segmentsCount++] = nPoints;
+                gap = false;
+            }
+            xPoints[nPoints] = Utils.checkedInt(Math.ceil(
                     context.getViewX(item.getXValue(dataIndex))));
-            yPoints[i] = Utils.checkedInt(Math.ceil(
+            yPoints[nPoints] = Utils.checkedInt(Math.ceil(
                     getYValue(item, dataIndex,
                             type, context, itemValueFactor)));
+            nPoints++;
         }
+        if (nPoints == 0) return null;
 
-        return new int[][] { xPoints, yPoints, { xPoints.length - 2 } };
+        return new int[][] { xPoints, yPoints, { nPoints }, Arrays.copyOf(segments, segmentsCount) };
     }
 
     private int[][] getMinMaxPoints(XYItem item, Rectangle dirtyArea,
@@ -315,14 +350,25 @@ public class XYPainter extends SynchronousXYItemPainter {
 
         int[] xPoints = new int[maxPoints + 2];
         int[] yPoints = new int[maxPoints + 2];
+        int[] segments = new int[maxPoints + 1];
+        int segmentsCount = 0;
+        int segmentStart = 0;
+        boolean gap = true;
 
         int nPoints = 0;
         for (int index = firstIndex; index <= lastIndex; index++) {
+            if (item.getYValue(index) == XYStorage.NO_VALUE) {
+                gap = true;
+                continue;
+            }
             int x = getViewX(context, item, index);
             int y = Utils.checkedInt(Math.ceil(getYValue(item, index,
                     type, context, itemValueFactor)));
 
-            if (nPoints == 0) { // First point
+            if (gap) { // First point of a segment
+                segmentStart = nPoints;
+                segments[segmentsCount++] = segmentStart;
+                gap = false;
                 xPoints[nPoints] = x;
                 yPoints[nPoints] = y;
                 nPoints++;
@@ -336,7 +382,7 @@ public class XYPainter extends SynchronousXYItemPainter {
                 } else { // Existing point
                     int y_1 = yPoints[nPoints - 1];
 
-                    if (nPoints > 1 && xPoints[nPoints - 2] == x_1) { // Existing point with two values
+                    if (nPoints - segmentStart > 2 && xPoints[nPoints - 2] == x_1) { // Existing point with two values
                         int y_2 = yPoints[nPoints - 2];
 
                         int minY = Math.min(y, y_1);
@@ -365,7 +411,9 @@ public class XYPainter extends SynchronousXYItemPainter {
             }
         }
 
-        return new int[][] { xPoints, yPoints, { nPoints } };
+        if (nPoints == 0) return null;
+
+        return new int[][] { xPoints, yPoints, { nPoints }, Arrays.copyOf(segments, segmentsCount) };
     }
 
     private static int getViewX(SynchronousXYChartContext context, XYItem item, int index) {
@@ -413,6 +461,7 @@ public class XYPainter extends SynchronousXYItemPainter {
                 if (valueIndex == -1) continue;
                 long xValue = item.getXValue(valueIndex);
                 long yValue = item.getYValue(valueIndex);
+                if (yValue == XYStorage.NO_VALUE) continue;
                 if (firstPoint) {
                     LongRect.set(dataBounds, xValue, yValue, 0, 0);
                     firstPoint = false;
@@ -144,6 +144,7 @@ public class XYSelectionOverlay extends ChartOverlay {
             XYItemSelection xySel = (XYItemSelection)sel;
             long xValue = xySel.getItem().getXValue(xySel.getValueIndex());
             long yValue = xySel.getItem().getYValue(xySel.getValueIndex());
+            if (yValue == XYStorage.NO_VALUE) continue;
             selectedValues.add(new Point(Utils.checkedInt(Math.ceil(context.getViewX(xValue))),
                     Utils.checkedInt(Math.ceil(context.getViewY(yValue)))));
         }
@@ -54,7 +54,7 @@ public class XYTooltipPainter extends JPanel {
         for (int i = 0; i < rowsCount; i++) {
             XYItemSelection sel = (XYItemSelection)selectedItems.get(i);
             long itemValue = sel.getItem().getYValue(sel.getValueIndex());
-            valuePainters[i].setText(model.getRowValue(i, itemValue));
+            valuePainters[i].setText(itemValue == XYStorage.NO_VALUE ? "—" : model.getRowValue(i, itemValue));
         }
     }
 
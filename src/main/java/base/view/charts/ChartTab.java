@@ -50,6 +50,11 @@ public class ChartTab extends JPanel {
         }
     }
 
+    // the arrays may be reused once this returns
+    public void setData(long[] time, long[][] values, int count) {
+        support.addValues(time, values, count);
+    }
+
     public String getPrettyName() {
         return name;
     }
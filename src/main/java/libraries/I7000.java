@@ -1,5 +1,6 @@
 package libraries;
 
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
@@ -7,6 +8,8 @@ import java.util.Locale;
 public class I7000 {
 
     public static boolean useCRC = false;
+    private static final ThreadLocal<DecimalFormat> technicalUnitsFormat = ThreadLocal.withInitial(() ->
+            new DecimalFormat("00.000", new DecimalFormatSymbols(Locale.US)));
 
     public static String getCRC(char[] str) {
         int crc = 0;
@@ -19,6 +22,11 @@ public class I7000 {
         return  str + (useCRC ? getCRC(str.toCharArray()) + "\r" : "\r");
     }
 
+    // ready to send frame of an already filtered command
+    public static byte[] toFrame(String command) {
+        return command.getBytes(StandardCharsets.US_ASCII);
+    }
+
     public static String setModuleName(String id, String newName) {
         String str = "~" + id + "O" + newName;
         return filter(str);
@@ -47,9 +55,7 @@ public class I7000 {
     }
 
     public static String formatTypeTechnicalUnits(float data) {
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-        DecimalFormat decimalFormat = new DecimalFormat("00.000", symbols);
-        return decimalFormat.format(data);
+        return technicalUnitsFormat.get().format(data);
     }
 
     public static String setAnalogOutTechnicalUnits(String id, float result) {
@@ -62,6 +68,12 @@ public class I7000 {
         return filter(str);
     }
 
+    // #AAN reads one channel of a multi-channel module, the reply carries a single value
+    public static String setAnalogInChannel(String idModule, int channel) {
+        String str = "#" + idModule + channel;
+        return filter(str);
+    }
+
     public static String setAnalogInTechnicalUnitsSynchronized(String idModule) {
         String str = "$" + idModule + "4";
         return filter(str);
@@ -0,0 +1,42 @@
+package libraries;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// compiles every command once into the frame that goes on the wire, CRC and '\r' included
+public class I7000CommandCache {
+
+    private final Map<String, byte[]> analogIn = new HashMap<>();
+    private final Map<String, Map<Float, byte[]>> analogOut = new HashMap<>();
+
+    public synchronized byte[] analogIn(String idModule, boolean synchronizedRead) {
+        String key = (synchronizedRead ? "$" : "#") + idModule;
+        return analogIn.computeIfAbsent(key, k -> I7000.toFrame(synchronizedRead ?
+                I7000.setAnalogInTechnicalUnitsSynchronized(idModule) : I7000.setAnalogInTechnicalUnits(idModule)));
+    }
+
+    public synchronized byte[] analogInChannel(String idModule, int channel) {
+        return analogIn.computeIfAbsent("#" + idModule + channel,
+                k -> I7000.toFrame(I7000.setAnalogInChannel(idModule, channel)));
+    }
+
+    public synchronized byte[] analogOut(String id, float value) {
+        return analogOut.computeIfAbsent(id, k -> new HashMap<>())
+                .computeIfAbsent(value, v -> I7000.toFrame(I7000.setAnalogOutTechnicalUnits(id, v)));
+    }
+
+    // a signal table usually repeats the same few hundred set-points, those share one frame
+    public byte[][] analogOut(String id, float[] signal) {
+        byte[][] frames = new byte[signal.length][];
+        for (int i = 0; i < signal.length; i++) {
+            frames[i] = analogOut(id, signal[i]);
+        }
+        return frames;
+    }
+
+    public synchronized void clear() {
+        analogIn.clear();
+        analogOut.clear();
+    }
+
+}
@@ -0,0 +1,123 @@
+package libraries;
+
+public class I7000Parser {
+
+    // same values as the signal.type preference
+    public static final int ENGINEERING_UNITS = 0;
+    public static final int PERCENT_OF_RANGE = 1;
+    public static final int HEXADECIMAL = 2;
+    // results of parseChannels that are not a channel count
+    public static final int MALFORMED = -1;
+    public static final int BAD_CHECKSUM = -2;
+
+    // full scale of the analog.input.type ranges (00..06) in the units the modules reply with
+    private static final float[] FULL_SCALE = {15f, 50f, 100f, 500f, 1f, 2.5f, 20f};
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+    public static float fullScale(int inputType) {
+        if (inputType < 0 || inputType >= FULL_SCALE.length) return 1f;
+        return FULL_SCALE[inputType];
+    }
+
+    /**
+     * Decodes a reply that carries one value per channel, like ">+01.234+00.500-02.000..." from a 7017F,
+     * into {@code out} starting at {@code offset}. Decimal values are split at their signs, hexadecimal
+     * ones are 4 digits each; every format ends up in engineering units. Returns {@code channels}, BAD_CHECKSUM when {@code crc} is set and the checksum is wrong,
+     * or MALFORMED if the frame is malformed or holds fewer than {@code channels} values.
+     */
+    public static int parseChannels(byte[] frame, int length, int start, int format, float fullScale, boolean crc,
+                                    float[] out, int offset, int channels) {
+        int end = dataEnd(frame, length, crc);
+        if (end < 0 || start >= end) return MALFORMED;
+        if (crc && !checkCRC(frame, end)) return BAD_CHECKSUM;
+        int from = start;
+        for (int channel = 0; channel < channels; channel++) {
+            if (from >= end) return MALFORMED;
+            int to;
+            if (format == HEXADECIMAL) {
+                to = Math.min(from + 4, end);
+            } else {
+                to = from + 1;
+                while (to < end && frame[to] != '+' && frame[to] != '-') to++;
+            }
+            float value = parseValue(frame, from, to, format, fullScale);
+            if (Float.isNaN(value)) return MALFORMED;
+            out[offset + channel] = value;
+            from = to;
+        }
+        return channels;
+    }
+
+    // "+050.00" percent of range is scaled like a hex code, so charts and files never depend on signal.type
+    private static float parseValue(byte[] frame, int from, int to, int format, float fullScale) {
+        if (format == HEXADECIMAL) return parseHex(frame, from, to, fullScale);
+        float value = parseDecimal(frame, from, to);
+        return format == PERCENT_OF_RANGE ? value * fullScale / 100f : value;
+    }
+
+    // index of the first byte after the data, -1 when there is no terminator
+    public static int dataEnd(byte[] frame, int length, boolean crc) {
+        if (length < 1 || frame[length - 1] != '\r') return -1;
+        int end = length - 1 - (crc ? 2 : 0);
+        return end < 0 ? -1 : end;
+    }
+
+    // the checksum is the low byte of the sum of everything before it, as two hex digits
+    public static boolean checkCRC(byte[] frame, int end) {
+        int sum = 0;
+        for (int i = 0; i < end; i++) sum += frame[i] & 0xFF;
+        int high = hexDigit(frame[end]);
+        int low = hexDigit(frame[end + 1]);
+        if (high < 0 || low < 0) return false;
+        return (sum & 0xFF) == ((high << 4) | low);
+    }
+
+    // "+01.234", "-0.5", "100.00"
+    public static float parseDecimal(byte[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '+' || b[i] == '-')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int decimals = -1;
+        int digits = 0;
+        for (; i < to; i++) {
+            byte ch = b[i];
+            if (ch == '.') {
+                if (decimals >= 0) return Float.NaN;
+                decimals = 0;
+                continue;
+            }
+            if (ch < '0' || ch > '9') return Float.NaN;
+            if (digits++ > 17) return Float.NaN;
+            mantissa = mantissa * 10 + (ch - '0');
+            if (decimals >= 0) decimals++;
+        }
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) return Float.NaN;
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return (float) (negative ? -value : value);
+    }
+
+    // 16-bit two's complement code, 7FFF is +full scale and 8000 is -full scale
+    public static float parseHex(byte[] b, int from, int to, float fullScale) {
+        if (to - from != 4) return Float.NaN;
+        int code = 0;
+        for (int i = from; i < to; i++) {
+            int digit = hexDigit(b[i]);
+            if (digit < 0) return Float.NaN;
+            code = (code << 4) | digit;
+        }
+        short value = (short) code;
+        return value < 0 ? value / 32768f * fullScale : value / 32767f * fullScale;
+    }
+
+    private static int hexDigit(byte ch) {
+        if (ch >= '0' && ch <= '9') return ch - '0';
+        if (ch >= 'A' && ch <= 'F') return ch - 'A' + 10;
+        if (ch >= 'a' && ch <= 'f') return ch - 'a' + 10;
+        return -1;
+    }
+
+}